@@ -0,0 +1,31 @@
+package dev.nexonm.distfs.metadata.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Short periodic jobs such as health checks run on the default scheduler. Long background transfers, which block
+ * for minutes, run on their own scheduler, so they cannot hold the threads the health checks need.
+ */
+@Configuration
+public class SchedulingConfig {
+
+    public static final String BACKGROUND_SCHEDULER = "backgroundTaskScheduler";
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    @Bean(name = BACKGROUND_SCHEDULER)
+    public ThreadPoolTaskScheduler backgroundTaskScheduler(
+            @Value("${storage.background.scheduler.pool-size:3}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("background-");
+        return scheduler;
+    }
+}
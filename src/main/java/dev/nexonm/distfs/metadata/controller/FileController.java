@@ -1,13 +1,22 @@
 package dev.nexonm.distfs.metadata.controller;
 
+import dev.nexonm.distfs.metadata.dto.request.ChunkCommitRequest;
+import dev.nexonm.distfs.metadata.dto.request.FileAllocateRequest;
 import dev.nexonm.distfs.metadata.dto.request.FileDeleteRequest;
 import dev.nexonm.distfs.metadata.dto.request.FileDownloadRequest;
+import dev.nexonm.distfs.metadata.dto.request.InstantUploadRequest;
+import dev.nexonm.distfs.metadata.dto.response.ChunkCommitResponse;
+import dev.nexonm.distfs.metadata.dto.response.FileAllocationResponse;
 import dev.nexonm.distfs.metadata.dto.response.FileDeleteResponse;
 import dev.nexonm.distfs.metadata.dto.response.FileDownloadResponse;
+import dev.nexonm.distfs.metadata.dto.response.FilePrecheckResponse;
 import dev.nexonm.distfs.metadata.dto.response.FileUploadResponse;
+import dev.nexonm.distfs.metadata.service.DirectUploadService;
 import dev.nexonm.distfs.metadata.service.FileDeleteService;
 import dev.nexonm.distfs.metadata.service.FileDownloadService;
 import dev.nexonm.distfs.metadata.service.FileStorageService;
+import dev.nexonm.distfs.metadata.service.InstantUploadService;
+import dev.nexonm.distfs.metadata.service.chunking.ChunkingMode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -29,14 +38,37 @@ public class FileController {
     private final FileStorageService fileStorageService;
     private final FileDownloadService downloadService;
     private final FileDeleteService deleteService;
+    private final InstantUploadService instantUploadService;
+    private final DirectUploadService directUploadService;
 
 
     @PostMapping("/upload")
     public ResponseEntity<FileUploadResponse> uploadFileChunked(
             @RequestParam("file") MultipartFile file,
-            @RequestParam(name = "fileHash") String fileHash) {
+            @RequestParam(name = "fileHash") String fileHash,
+            @RequestParam(name = "chunkingMode", required = false) ChunkingMode chunkingMode) {
 
-        return ResponseEntity.ok(fileStorageService.storeFileChunked(file, fileHash));
+        return ResponseEntity.ok(fileStorageService.storeFileChunked(file, fileHash, chunkingMode));
+    }
+
+    @PostMapping("/upload/precheck")
+    public ResponseEntity<FilePrecheckResponse> precheckUpload(@RequestBody InstantUploadRequest request) {
+        return ResponseEntity.ok(instantUploadService.precheck(request));
+    }
+
+    @PostMapping("/upload/instant")
+    public ResponseEntity<FileUploadResponse> uploadFileInstant(@RequestBody InstantUploadRequest request) {
+        return ResponseEntity.ok(instantUploadService.storeInstant(request));
+    }
+
+    @PostMapping("/upload/allocate")
+    public ResponseEntity<FileAllocationResponse> allocateUpload(@RequestBody FileAllocateRequest request) {
+        return ResponseEntity.ok(directUploadService.allocate(request));
+    }
+
+    @PostMapping("/upload/commit")
+    public ResponseEntity<ChunkCommitResponse> commitChunk(@RequestBody ChunkCommitRequest request) {
+        return ResponseEntity.ok(directUploadService.commitChunk(request));
     }
 
     /**
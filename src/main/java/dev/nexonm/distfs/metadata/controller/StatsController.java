@@ -0,0 +1,65 @@
+package dev.nexonm.distfs.metadata.controller;
+
+import dev.nexonm.distfs.metadata.dto.response.CacheStatsResponse;
+import dev.nexonm.distfs.metadata.dto.response.DeduplicationStatsResponse;
+import dev.nexonm.distfs.metadata.dto.response.GcStatsResponse;
+import dev.nexonm.distfs.metadata.dto.response.NodeLimitResponse;
+import dev.nexonm.distfs.metadata.dto.response.RebalanceStatsResponse;
+import dev.nexonm.distfs.metadata.dto.response.RepairStatsResponse;
+import dev.nexonm.distfs.metadata.service.ChunkDeduplicationService;
+import dev.nexonm.distfs.metadata.service.ChunkGarbageCollector;
+import dev.nexonm.distfs.metadata.service.ClusterRebalancer;
+import dev.nexonm.distfs.metadata.service.FileAllocationCache;
+import dev.nexonm.distfs.metadata.service.NodeConcurrencyLimiter;
+import dev.nexonm.distfs.metadata.service.ReplicaRepairService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping(path = "/api/stats")
+@Slf4j
+@RequiredArgsConstructor
+public class StatsController {
+    private final ChunkDeduplicationService deduplicationService;
+    private final FileAllocationCache fileAllocationCache;
+    private final ChunkGarbageCollector chunkGarbageCollector;
+    private final NodeConcurrencyLimiter nodeConcurrencyLimiter;
+    private final ReplicaRepairService replicaRepairService;
+    private final ClusterRebalancer clusterRebalancer;
+
+    @GetMapping("/dedupe")
+    public ResponseEntity<DeduplicationStatsResponse> deduplicationStats() {
+        return ResponseEntity.ok(deduplicationService.getStats());
+    }
+
+    @GetMapping("/cache")
+    public ResponseEntity<CacheStatsResponse> cacheStats() {
+        return ResponseEntity.ok(fileAllocationCache.getStats());
+    }
+
+    @GetMapping("/gc")
+    public ResponseEntity<GcStatsResponse> gcStats() {
+        return ResponseEntity.ok(chunkGarbageCollector.getStats());
+    }
+
+    @GetMapping("/nodes")
+    public ResponseEntity<List<NodeLimitResponse>> nodeLimitStats() {
+        return ResponseEntity.ok(nodeConcurrencyLimiter.getStats());
+    }
+
+    @GetMapping("/repair")
+    public ResponseEntity<RepairStatsResponse> repairStats() {
+        return ResponseEntity.ok(replicaRepairService.getStats());
+    }
+
+    @GetMapping("/rebalance")
+    public ResponseEntity<RebalanceStatsResponse> rebalanceStats() {
+        return ResponseEntity.ok(clusterRebalancer.getStats());
+    }
+}
@@ -1,13 +1,18 @@
 package dev.nexonm.distfs.metadata.controller;
 
 import dev.nexonm.distfs.metadata.dto.request.AddStorageNodeRequest;
+import dev.nexonm.distfs.metadata.dto.request.DrainStorageNodeRequest;
+import dev.nexonm.distfs.metadata.dto.response.DrainStatusResponse;
 import dev.nexonm.distfs.metadata.service.StorageNodeService;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -23,4 +28,21 @@ public class StorageNodeController {
         log.info("Request for node register with address={}:{}", request.getHost(), request.getPort());
         return ResponseEntity.ok(service.registerStorageNode(request));
     }
+
+    @PostMapping("/drain")
+    public ResponseEntity<String> drainStorageNode(@RequestBody DrainStorageNodeRequest request){
+        log.info("Request for node drain with address={}:{}", request.getHost(), request.getPort());
+        return ResponseEntity.ok(service.updateNodeDraining(request, true));
+    }
+
+    @DeleteMapping("/drain")
+    public ResponseEntity<String> cancelStorageNodeDrain(@RequestBody DrainStorageNodeRequest request){
+        log.info("Request for node drain cancel with address={}:{}", request.getHost(), request.getPort());
+        return ResponseEntity.ok(service.updateNodeDraining(request, false));
+    }
+
+    @GetMapping("/drain")
+    public ResponseEntity<DrainStatusResponse> drainStatus(@RequestParam String host, @RequestParam int port){
+        return ResponseEntity.ok(service.getDrainStatus(host, port));
+    }
 }
@@ -7,7 +7,7 @@ public class FileMapper {
 
 
     public static FileUploadResponse mapFiletoFileUploadResponse(MultipartFile file, long chunkNumber,
-                                                                 String fileUUID) {
+                                                                 String fileUUID, int placementRetries) {
 
         return FileUploadResponse.builder()
                 .fileUUID(fileUUID)
@@ -15,6 +15,7 @@ public class FileMapper {
                 .fileType(file.getContentType())
                 .fileSizeBytes(file.getSize())
                 .chunkNumber(chunkNumber)
+                .placementRetries(placementRetries)
                 .build();
 
     }
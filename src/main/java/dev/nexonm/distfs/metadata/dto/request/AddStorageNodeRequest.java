@@ -13,4 +13,7 @@ public class AddStorageNodeRequest {
 
     String host;
     int port;
+    Long capacityBytes;
+    Long usedBytes;
+    Long chunkCount;
 }
@@ -0,0 +1,14 @@
+package dev.nexonm.distfs.metadata.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChunkBatchDeleteRequest {
+    private List<ChunkDeleteRequest> chunks;
+}
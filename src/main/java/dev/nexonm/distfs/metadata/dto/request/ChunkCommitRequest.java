@@ -0,0 +1,19 @@
+package dev.nexonm.distfs.metadata.dto.request;
+
+import dev.nexonm.distfs.metadata.dto.response.HostResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChunkCommitRequest {
+    private String fileUUID;
+    private String chunkUUID;
+    private String chunkHash;
+    // Hosts that confirmed storing the chunk
+    private List<HostResponse> hosts;
+}
@@ -0,0 +1,14 @@
+package dev.nexonm.distfs.metadata.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DrainStorageNodeRequest {
+
+    String host;
+    int port;
+}
@@ -0,0 +1,14 @@
+package dev.nexonm.distfs.metadata.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FileAllocateRequest {
+    private String filename;
+    private String fileHash;
+    private Long fileSizeBytes;
+}
@@ -0,0 +1,15 @@
+package dev.nexonm.distfs.metadata.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InstantUploadRequest {
+    private String filename;
+    private String fileType;
+    private String fileHash;
+    private Long fileSizeBytes;
+}
@@ -17,5 +17,6 @@ public class ChunkAllocationResponse {
     Integer chunkIndex;
     Integer chunkSizeBytes;
     String chunkHash;
+    String chunkHashAlgorithm;
     List<HostResponse> hosts;
 }
@@ -0,0 +1,14 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkBatchUploadResponse {
+    private List<ChunkUploadStatusResponse> results;
+}
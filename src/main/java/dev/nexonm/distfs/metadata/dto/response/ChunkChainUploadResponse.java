@@ -0,0 +1,15 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkChainUploadResponse {
+    // Nodes of the chain that acknowledged the chunk
+    private List<HostResponse> storedOn;
+}
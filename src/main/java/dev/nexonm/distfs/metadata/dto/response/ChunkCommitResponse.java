@@ -0,0 +1,15 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkCommitResponse {
+    private String fileUUID;
+    private int committedChunks;
+    private int totalChunks;
+    private boolean completed;
+}
@@ -0,0 +1,14 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkDeleteStatusResponse {
+    private String chunkUUID;
+    // True when the chunk was removed or was not stored on the node
+    private boolean deleted;
+}
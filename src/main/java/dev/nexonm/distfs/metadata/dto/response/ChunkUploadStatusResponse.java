@@ -0,0 +1,13 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkUploadStatusResponse {
+    private String chunkUUID;
+    private boolean stored;
+}
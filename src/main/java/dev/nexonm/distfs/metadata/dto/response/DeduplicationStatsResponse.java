@@ -0,0 +1,15 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeduplicationStatsResponse {
+    private boolean enabled;
+    private long deduplicatedChunks;
+    private long deduplicatedBytes;
+    private long savedTransferBytes;
+}
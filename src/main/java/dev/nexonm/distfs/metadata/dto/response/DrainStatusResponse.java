@@ -0,0 +1,19 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DrainStatusResponse {
+    private String nodeUUID;
+    private String host;
+    private int port;
+    private boolean draining;
+    private long remainingChunks;
+    private long remainingBytes;
+    // True once a draining node holds no chunks of live files and can be shut down
+    private boolean completed;
+}
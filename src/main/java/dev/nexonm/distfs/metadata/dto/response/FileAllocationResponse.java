@@ -0,0 +1,22 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileAllocationResponse {
+
+    String fileUUID;
+    String filename;
+    Long fileSizeBytes;
+    Integer chunkSizeBytes;
+    String expiresAt;
+    List<ChunkAllocationResponse> chunks;
+}
@@ -12,5 +12,6 @@ public class FileUploadResponse {
     String fileType;
     Long fileSizeBytes;
     Long chunkNumber;
+    Integer placementRetries;
 
 }
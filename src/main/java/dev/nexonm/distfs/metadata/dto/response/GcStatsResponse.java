@@ -0,0 +1,17 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GcStatsResponse {
+    private long pendingFiles;
+    private long pendingReplicas;
+    private long removedReplicas;
+    private long failedReplicaDeletes;
+    private long purgedFiles;
+    private double replicasPerSecond;
+}
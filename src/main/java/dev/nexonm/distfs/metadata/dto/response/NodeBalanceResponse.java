@@ -0,0 +1,19 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeBalanceResponse {
+    private String nodeUUID;
+    private String host;
+    private int port;
+    private long chunkCount;
+    private long storedBytes;
+    // Null for unhealthy and draining nodes, they take no part in the balance
+    private Long targetBytes;
+    private boolean draining;
+}
@@ -0,0 +1,14 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeHealthResponse {
+    private Long capacityBytes;
+    private Long usedBytes;
+    private Long chunkCount;
+}
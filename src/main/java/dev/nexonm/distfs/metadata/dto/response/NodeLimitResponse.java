@@ -0,0 +1,21 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeLimitResponse {
+    private String nodeUUID;
+    private double limit;
+    private int inFlight;
+    private long inFlightBytes;
+    private int queued;
+    private long throttled;
+    private long failures;
+    private double recentUploadLatencyMs;
+    private double uploadBaselineMs;
+    private double deleteBaselineMs;
+}
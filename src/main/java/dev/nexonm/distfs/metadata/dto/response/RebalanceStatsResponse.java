@@ -0,0 +1,20 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RebalanceStatsResponse {
+    private boolean enabled;
+    private double threshold;
+    private long movedReplicas;
+    private long drainedReplicas;
+    private long failedMoves;
+    private long movedBytes;
+    private List<NodeBalanceResponse> nodes;
+}
@@ -0,0 +1,24 @@
+package dev.nexonm.distfs.metadata.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RepairStatsResponse {
+    private boolean enabled;
+    // Seconds a node must be unhealthy before its replicas are repaired
+    private long downTimeSeconds;
+    private long underReplicatedChunks;
+    private long missingReplicas;
+    private long unavailableChunks;
+    private long repairedReplicas;
+    private long failedRepairs;
+    private long copiedBytes;
+    private long removedExcessReplicas;
+    private double replicasPerSecond;
+    // Null while nothing is being repaired
+    private Double secondsToFullRedundancy;
+}
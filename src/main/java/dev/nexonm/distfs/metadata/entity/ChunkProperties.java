@@ -6,6 +6,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
@@ -23,7 +24,10 @@ import java.util.Set;
 import java.util.UUID;
 
 @Entity
-@Table(name = "chunk_properties")
+@Table(name = "chunk_properties", indexes = {
+        @Index(name = "idx_chunk_properties_hash", columnList = "hash"),
+        @Index(name = "idx_chunk_properties_content_chunk_id", columnList = "content_chunk_id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -49,24 +53,48 @@ public class ChunkProperties {
     @Column(nullable = false)
     private String hash;
 
+    // Null for rows stored before the algorithm was recorded, those were hashed with SHA-256
+    @Column(name = "hash_algorithm")
+    private String hashAlgorithm;
+
+    // Set when the chunk reuses content already stored with another chunk, null if it was uploaded with this chunk
+    @Column(name = "content_chunk_id")
+    private UUID contentChunkId;
+
+    @Column(name = "content_file_id")
+    private UUID contentFileId;
+
     @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
     @JoinTable(
             name = "chunk_node_mapping",
             joinColumns = @JoinColumn(name = "chunk_id"),
-            inverseJoinColumns = @JoinColumn(name = "node_id")
+            inverseJoinColumns = @JoinColumn(name = "node_id"),
+            indexes = @Index(name = "idx_chunk_node_mapping_node_id", columnList = "node_id")
     )
     @Builder.Default
     private Set<StorageNode> storageNodes = new HashSet<>();
 
-    // Helper methods for bidirectional relationship management
+    /**
+     * @return id under which the chunk content is stored on the nodes
+     */
+    public UUID getStoredChunkId() {
+        return contentChunkId != null ? contentChunkId : id;
+    }
+
+    /**
+     * @return file id under which the chunk content is stored on the nodes
+     */
+    public UUID getStoredFileId() {
+        return contentFileId != null ? contentFileId : file.getId();
+    }
+
+    // Replicas are owned by the chunk only, a node never loads the chunks it stores
     public void addStorageNode(StorageNode node) {
         storageNodes.add(node);
-        node.getChunks().add(this);
     }
 
     public void removeStorageNode(StorageNode node) {
         storageNodes.remove(node);
-        node.getChunks().remove(this);
     }
 
 }
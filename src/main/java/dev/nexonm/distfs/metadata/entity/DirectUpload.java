@@ -0,0 +1,48 @@
+package dev.nexonm.distfs.metadata.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * File allocated to a client uploading its chunks directly to the storage nodes, kept until all chunks are
+ * committed or the allocation expires. Kept in the database so uploads in progress survive a restart.
+ */
+@Entity
+@Table(name = "direct_uploads", indexes = {
+        @Index(name = "idx_direct_uploads_expires_at", columnList = "expires_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectUpload {
+
+    @Id
+    @Column(name = "file_id")
+    private UUID id;
+
+    @Column(nullable = false)
+    private String filename;
+
+    @Column(name = "file_hash", nullable = false)
+    private String fileHash;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    @Column(name = "hash_algorithm", nullable = false)
+    private String hashAlgorithm;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
@@ -0,0 +1,46 @@
+package dev.nexonm.distfs.metadata.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Chunk allocated for a {@link DirectUpload}.
+ */
+@Entity
+@Table(name = "direct_upload_chunks", indexes = {
+        @Index(name = "idx_direct_upload_chunks_file_id", columnList = "file_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectUploadChunk {
+
+    @Id
+    @Column(name = "chunk_id")
+    private UUID id;
+
+    @Column(name = "file_id", nullable = false)
+    private UUID fileId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(name = "chunk_size", nullable = false)
+    private Long chunkSize;
+
+    @Column(name = "hash_algorithm", nullable = false)
+    private String hashAlgorithm;
+
+    // Reported by the client when it committed the chunk, null until then
+    private String hash;
+}
@@ -0,0 +1,48 @@
+package dev.nexonm.distfs.metadata.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Node allocated to store a {@link DirectUploadChunk}.
+ */
+@Entity
+@Table(name = "direct_upload_replicas", indexes = {
+        @Index(name = "idx_direct_upload_replicas_file_id", columnList = "file_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectUploadReplica {
+
+    @Id
+    @Column(name = "replica_id")
+    private UUID id;
+
+    @Column(name = "file_id", nullable = false)
+    private UUID fileId;
+
+    @Column(name = "chunk_id", nullable = false)
+    private UUID chunkId;
+
+    @Column(name = "node_id", nullable = false)
+    private UUID nodeId;
+
+    // Position of the node in the hosts returned to the client
+    @Column(name = "node_order", nullable = false)
+    private Integer nodeOrder;
+
+    // Set when the client reported that the node confirmed storing the chunk
+    @Column(nullable = false)
+    private Boolean committed;
+}
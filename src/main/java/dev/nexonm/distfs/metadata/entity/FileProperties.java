@@ -6,6 +6,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
@@ -15,13 +16,17 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 
 @Entity
-@Table(name = "file_properties")
+@Table(name = "file_properties", indexes = {
+        @Index(name = "idx_file_properties_hash", columnList = "hash"),
+        @Index(name = "idx_file_properties_deleted_at", columnList = "deleted_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -46,6 +51,28 @@ public class FileProperties {
     @Column(nullable = false)
     private String hash;
 
+    // Null for rows stored before the algorithm was recorded, those were hashed with SHA-256
+    @Column(name = "hash_algorithm")
+    private String hashAlgorithm;
+
+    // False while the hashes were only reported by the client, such files are not shared with other uploads.
+    // Null for rows stored before the flag, those were hashed by the server
+    @Column(name = "hash_verified")
+    private Boolean hashVerified;
+
+    // True when the verification found that the content does not match the hashes reported by the client,
+    // the file is not checked again. Null for files that were not rejected
+    @Column(name = "hash_rejected")
+    private Boolean hashRejected;
+
+    // Replicas every chunk was written with, null for rows stored before it was recorded
+    @Column(name = "replication_factor")
+    private Integer replicationFactor;
+
+    // Set when the file is deleted, the chunks are removed from the nodes in the background
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
     @OneToMany(mappedBy = "file", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @Builder.Default
     private List<ChunkProperties> chunks = new ArrayList<>();
@@ -0,0 +1,48 @@
+package dev.nexonm.distfs.metadata.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Content on a node that no chunk maps to anymore and that must be deleted from the node once the delete is due,
+ * unless a chunk maps to it again by then. Kept in the database so pending deletes survive a restart.
+ */
+@Entity
+@Table(name = "replica_tombstones", indexes = {
+        @Index(name = "idx_replica_tombstones_delete_after", columnList = "delete_after")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicaTombstone {
+
+    @Id
+    @Column(name = "tombstone_id")
+    private UUID id;
+
+    @Column(name = "stored_chunk_id", nullable = false)
+    private UUID storedChunkId;
+
+    @Column(name = "stored_file_id", nullable = false)
+    private UUID storedFileId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(name = "node_id", nullable = false)
+    private UUID nodeId;
+
+    @Column(name = "delete_after", nullable = false)
+    private Instant deleteAfter;
+}
@@ -3,33 +3,30 @@ package dev.nexonm.distfs.metadata.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
-import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.ToString;
+import lombok.Setter;
 
-import java.util.HashSet;
-import java.util.Set;
 import java.util.UUID;
 
 @Entity
 @Table(name = "storage_nodes")
-@Data
+@Getter
+@Setter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@EqualsAndHashCode(exclude = "chunks")
-@ToString(exclude = "chunks")
 public class StorageNode {
 
     @Id
+    @EqualsAndHashCode.Include
     @Column(name = "node_id")
     private UUID id;
 
@@ -39,8 +36,18 @@ public class StorageNode {
     @Column(nullable = false)
     private Integer port;
 
-    @ManyToMany(mappedBy = "storageNodes", fetch = FetchType.LAZY)
-    @Builder.Default
-    private Set<ChunkProperties> chunks = new HashSet<>();
+    // Disk usage reported by the node, null until the node reports it
+    private Long capacityBytes;
+
+    private Long usedBytes;
+
+    private Long chunkCount;
+
+    // Draining nodes get no new chunks and their chunks are moved to other nodes, null means not draining
+    private Boolean draining;
+
+    public boolean isDraining() {
+        return Boolean.TRUE.equals(draining);
+    }
 }
 
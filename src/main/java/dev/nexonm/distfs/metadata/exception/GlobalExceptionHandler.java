@@ -49,6 +49,11 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(buildErrorResponse(ex.getMessage(), HttpStatus.CONFLICT), HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(StorageNodeNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleStorageNodeNotFound(StorageNodeNotFoundException ex) {
+        return new ResponseEntity<>(buildErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND), HttpStatus.NOT_FOUND);
+    }
+
     @ExceptionHandler(ChunkWasNotSentToNodes.class)
     public ResponseEntity<Map<String, Object>> handleChunkDistributionFailure(ChunkWasNotSentToNodes ex) {
         return new ResponseEntity<>(buildErrorResponse(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,7 @@
+package dev.nexonm.distfs.metadata.exception;
+
+public class StorageNodeNotFoundException extends RuntimeException {
+    public StorageNodeNotFoundException(String host, int port) {
+        super(String.format("There is no node located at 'http://%s:%d'.", host, port));
+    }
+}
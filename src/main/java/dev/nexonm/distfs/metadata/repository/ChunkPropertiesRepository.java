@@ -1,18 +1,36 @@
 package dev.nexonm.distfs.metadata.repository;
 
 import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.service.model.ChunkReplica;
+import dev.nexonm.distfs.metadata.service.model.ContentReplicas;
+import dev.nexonm.distfs.metadata.service.model.NodeUsage;
+import dev.nexonm.distfs.metadata.service.model.ReplicationBacklog;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
 public interface ChunkPropertiesRepository extends JpaRepository<ChunkProperties, UUID> {
 
+    // Replicas of every content of files that are not deleted on the given nodes and the replicas it needs
+    String CONTENT_REPLICAS = "SELECT COALESCE(c.content_chunk_id, c.chunk_id) AS stored_chunk_id, " +
+            "COUNT(DISTINCT m.node_id) AS live, " +
+            "CAST(LEAST(MAX(COALESCE(f.replication_factor, :defaultReplicas)), :maxReplicas) AS BIGINT) AS target " +
+            "FROM chunk_properties c JOIN file_properties f ON f.file_id = c.file_id " +
+            "LEFT JOIN chunk_node_mapping m ON m.chunk_id = c.chunk_id AND m.node_id IN (:nodeIds) " +
+            "WHERE f.deleted_at IS NULL " +
+            "GROUP BY COALESCE(c.content_chunk_id, c.chunk_id)";
+
     List<ChunkProperties> findByFileIdOrderByChunkIndexAsc(UUID fileId);
 
     Optional<ChunkProperties> findByFileIdAndChunkIndex(UUID fileId, Integer chunkIndex);
@@ -23,5 +41,156 @@ public interface ChunkPropertiesRepository extends JpaRepository<ChunkProperties
     @Query("SELECT c FROM ChunkProperties c " +
             "WHERE SIZE(c.storageNodes) < :replicationCount")
     List<ChunkProperties> findChunksWithReplicationCountLessThan(@Param("replicationCount") Integer replicationCount);
-}
 
+    @Query("SELECT c FROM ChunkProperties c " +
+            "WHERE c.hash = :hash AND c.chunkSize = :chunkSize AND c.hashAlgorithm = :hashAlgorithm " +
+            "AND SIZE(c.storageNodes) > 0 AND c.file.deletedAt IS NULL " +
+            "AND (c.file.hashVerified IS NULL OR c.file.hashVerified = TRUE)")
+    List<ChunkProperties> findStoredChunksWithContent(@Param("hash") String hash,
+                                                      @Param("chunkSize") Long chunkSize,
+                                                      @Param("hashAlgorithm") String hashAlgorithm,
+                                                      Pageable pageable);
+
+    /**
+     * @param nodeIds nodes to look at
+     * @param deletedBefore only files deleted before this time
+     * @param pageable page of replicas, the oldest deletions first
+     * @return replicas of the chunks of deleted files on the given nodes
+     */
+    @Query("SELECT new dev.nexonm.distfs.metadata.service.model.ChunkReplica(c.id, " +
+            "COALESCE(c.contentChunkId, c.id), COALESCE(c.contentFileId, c.file.id), c.chunkIndex, " +
+            "n.id, n.hostAddr, n.port) " +
+            "FROM ChunkProperties c JOIN c.storageNodes n " +
+            "WHERE c.file.deletedAt < :deletedBefore AND n.id IN :nodeIds " +
+            "ORDER BY c.file.deletedAt, c.id, n.id")
+    List<ChunkReplica> findReplicasOfDeletedFiles(@Param("nodeIds") Collection<UUID> nodeIds,
+                                                  @Param("deletedBefore") Instant deletedBefore,
+                                                  Pageable pageable);
+
+    @Query("SELECT COUNT(n) FROM ChunkProperties c JOIN c.storageNodes n WHERE c.file.deletedAt IS NOT NULL")
+    long countReplicasOfDeletedFiles();
+
+    /**
+     * @param storedChunkIds ids of stored content
+     * @return the ids that chunks of files which are not deleted still reference
+     */
+    @Query("SELECT DISTINCT COALESCE(c.contentChunkId, c.id) FROM ChunkProperties c " +
+            "WHERE c.file.deletedAt IS NULL AND (c.id IN :storedChunkIds OR c.contentChunkId IN :storedChunkIds)")
+    Set<UUID> findStoredChunkIdsReferencedByLiveFiles(@Param("storedChunkIds") Collection<UUID> storedChunkIds);
+
+    /**
+     * @param nodeIds nodes counted as holding a replica
+     * @param defaultReplicas replicas of content whose files were stored without a replication factor
+     * @param maxReplicas upper bound of the required replicas
+     * @param limit maximum number of returned content
+     * @return content of files that are not deleted with at least one but fewer replicas on the nodes than the
+     * largest replication factor of its files, the fewest replicas first
+     */
+    @Query(value = "SELECT t.stored_chunk_id AS \"storedChunkId\", t.live AS \"liveReplicas\", " +
+            "t.target AS \"targetReplicas\" FROM (" + CONTENT_REPLICAS + ") t " +
+            "WHERE t.live BETWEEN 1 AND t.target - 1 " +
+            "ORDER BY t.live, t.stored_chunk_id LIMIT :limit",
+            nativeQuery = true)
+    List<ContentReplicas> findUnderReplicatedContent(@Param("nodeIds") Collection<UUID> nodeIds,
+                                                     @Param("defaultReplicas") int defaultReplicas,
+                                                     @Param("maxReplicas") int maxReplicas,
+                                                     @Param("limit") int limit);
+
+    /**
+     * @param nodeIds nodes counted as holding a replica
+     * @param defaultReplicas replicas of content whose files were stored without a replication factor
+     * @param maxReplicas upper bound of the required replicas
+     * @param limit maximum number of returned content
+     * @return content of files that are not deleted with more replicas on the nodes than required, e.g. because
+     * a node recovered after its content was repaired, the most replicas first
+     */
+    @Query(value = "SELECT t.stored_chunk_id AS \"storedChunkId\", t.live AS \"liveReplicas\", " +
+            "t.target AS \"targetReplicas\" FROM (" + CONTENT_REPLICAS + ") t " +
+            "WHERE t.live > t.target " +
+            "ORDER BY t.live - t.target DESC, t.stored_chunk_id LIMIT :limit",
+            nativeQuery = true)
+    List<ContentReplicas> findOverReplicatedContent(@Param("nodeIds") Collection<UUID> nodeIds,
+                                                    @Param("defaultReplicas") int defaultReplicas,
+                                                    @Param("maxReplicas") int maxReplicas,
+                                                    @Param("limit") int limit);
+
+    @Query(value = "SELECT COUNT(*) FILTER (WHERE t.live > 0) AS \"underReplicated\", " +
+            "CAST(COALESCE(SUM(t.target - t.live) FILTER (WHERE t.live > 0), 0) AS BIGINT) " +
+            "AS \"missingReplicas\", " +
+            "COUNT(*) FILTER (WHERE t.live = 0) AS \"unavailable\" " +
+            "FROM (" + CONTENT_REPLICAS + ") t " +
+            "WHERE t.live < t.target",
+            nativeQuery = true)
+    ReplicationBacklog countReplicationBacklog(@Param("nodeIds") Collection<UUID> nodeIds,
+                                               @Param("defaultReplicas") int defaultReplicas,
+                                               @Param("maxReplicas") int maxReplicas);
+
+    /**
+     * @param storedChunkIds ids of stored content
+     * @return chunks of files that are not deleted referencing the content, with their storage nodes
+     */
+    @Query("SELECT DISTINCT c FROM ChunkProperties c LEFT JOIN FETCH c.storageNodes " +
+            "WHERE (c.id IN :storedChunkIds OR c.contentChunkId IN :storedChunkIds) AND c.file.deletedAt IS NULL")
+    List<ChunkProperties> findLiveChunksWithContent(@Param("storedChunkIds") Collection<UUID> storedChunkIds);
+
+    /**
+     * @return number and bytes of the distinct content of files that are not deleted on every node holding any
+     */
+    @Query(value = "SELECT t.node_id AS \"nodeId\", COUNT(*) AS \"chunkCount\", " +
+            "CAST(COALESCE(SUM(t.chunk_size), 0) AS BIGINT) AS \"storedBytes\" " +
+            "FROM (SELECT DISTINCT m.node_id, COALESCE(c.content_chunk_id, c.chunk_id) AS stored_chunk_id, " +
+            "c.chunk_size " +
+            "FROM chunk_properties c JOIN file_properties f ON f.file_id = c.file_id " +
+            "JOIN chunk_node_mapping m ON m.chunk_id = c.chunk_id " +
+            "WHERE f.deleted_at IS NULL) t " +
+            "GROUP BY t.node_id",
+            nativeQuery = true)
+    List<NodeUsage> findNodeUsage();
+
+    /**
+     * @param nodeId node holding the content
+     * @param limit maximum number of returned ids
+     * @return stored chunk ids of files that are not deleted on the node
+     */
+    @Query(value = "SELECT DISTINCT COALESCE(c.content_chunk_id, c.chunk_id) " +
+            "FROM chunk_properties c JOIN file_properties f ON f.file_id = c.file_id " +
+            "JOIN chunk_node_mapping m ON m.chunk_id = c.chunk_id " +
+            "WHERE m.node_id = :nodeId AND f.deleted_at IS NULL " +
+            "ORDER BY 1 LIMIT :limit",
+            nativeQuery = true)
+    List<UUID> findContentOnNode(@Param("nodeId") UUID nodeId, @Param("limit") int limit);
+
+    /**
+     * @param nodeId node holding the content
+     * @param receiverNodeId node that should not hold the content yet
+     * @param limit maximum number of returned ids
+     * @return stored chunk ids of files that are not deleted on the first node and missing on the second
+     */
+    @Query(value = "SELECT DISTINCT COALESCE(c.content_chunk_id, c.chunk_id) " +
+            "FROM chunk_properties c JOIN file_properties f ON f.file_id = c.file_id " +
+            "JOIN chunk_node_mapping m ON m.chunk_id = c.chunk_id " +
+            "WHERE m.node_id = :nodeId AND f.deleted_at IS NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM chunk_properties o " +
+            "JOIN chunk_node_mapping r ON r.chunk_id = o.chunk_id AND r.node_id = :receiverNodeId " +
+            "WHERE COALESCE(o.content_chunk_id, o.chunk_id) = COALESCE(c.content_chunk_id, c.chunk_id)) " +
+            "ORDER BY 1 LIMIT :limit",
+            nativeQuery = true)
+    List<UUID> findContentOnNodeMissingFrom(@Param("nodeId") UUID nodeId,
+                                            @Param("receiverNodeId") UUID receiverNodeId,
+                                            @Param("limit") int limit);
+
+    /**
+     * @param storedChunkId id of stored content
+     * @param nodeId node to look at
+     * @return true if any chunk referencing the content is mapped to the node
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM chunk_properties c " +
+            "JOIN chunk_node_mapping m ON m.chunk_id = c.chunk_id " +
+            "WHERE m.node_id = :nodeId AND (c.chunk_id = :storedChunkId OR c.content_chunk_id = :storedChunkId))",
+            nativeQuery = true)
+    boolean existsContentOnNode(@Param("storedChunkId") UUID storedChunkId, @Param("nodeId") UUID nodeId);
+
+    @Modifying
+    @Query(value = "DELETE FROM chunk_properties WHERE file_id = :fileId", nativeQuery = true)
+    int deleteChunksOfFile(@Param("fileId") UUID fileId);
+}
@@ -0,0 +1,25 @@
+package dev.nexonm.distfs.metadata.repository;
+
+import dev.nexonm.distfs.metadata.entity.DirectUploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DirectUploadChunkRepository extends JpaRepository<DirectUploadChunk, UUID> {
+
+    List<DirectUploadChunk> findByFileIdOrderByChunkIndex(UUID fileId);
+
+    @Modifying
+    @Query("UPDATE DirectUploadChunk c SET c.hash = :hash WHERE c.id = :chunkId")
+    int markCommitted(@Param("chunkId") UUID chunkId, @Param("hash") String hash);
+
+    @Modifying
+    @Query("DELETE FROM DirectUploadChunk c WHERE c.fileId = :fileId")
+    int deleteChunksOfFile(@Param("fileId") UUID fileId);
+}
@@ -0,0 +1,30 @@
+package dev.nexonm.distfs.metadata.repository;
+
+import dev.nexonm.distfs.metadata.entity.DirectUploadReplica;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DirectUploadReplicaRepository extends JpaRepository<DirectUploadReplica, UUID> {
+
+    List<DirectUploadReplica> findByFileIdOrderByNodeOrder(UUID fileId);
+
+    /**
+     * Marks the replicas of the chunk on the given nodes committed and all other replicas of the chunk not committed.
+     */
+    @Modifying
+    @Query("UPDATE DirectUploadReplica r SET r.committed = CASE WHEN r.nodeId IN :nodeIds THEN TRUE ELSE FALSE END " +
+            "WHERE r.chunkId = :chunkId")
+    int markCommitted(@Param("chunkId") UUID chunkId, @Param("nodeIds") Collection<UUID> nodeIds);
+
+    @Modifying
+    @Query("DELETE FROM DirectUploadReplica r WHERE r.fileId = :fileId")
+    int deleteReplicasOfFile(@Param("fileId") UUID fileId);
+}
@@ -0,0 +1,39 @@
+package dev.nexonm.distfs.metadata.repository;
+
+import dev.nexonm.distfs.metadata.entity.DirectUpload;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface DirectUploadRepository extends JpaRepository<DirectUpload, UUID> {
+
+    /**
+     * Locks the allocation until the end of the transaction, commits of one file and its expiry run one at a time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM DirectUpload u WHERE u.id = :fileId")
+    Optional<DirectUpload> findByIdForUpdate(@Param("fileId") UUID fileId);
+
+    /**
+     * @param now current time
+     * @param pageable batch size
+     * @return locked allocations that expired before now, the oldest first
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<DirectUpload> findByExpiresAtBeforeOrderByExpiresAt(Instant now, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM DirectUpload u WHERE u.id = :fileId")
+    int deleteAllocation(@Param("fileId") UUID fileId);
+}
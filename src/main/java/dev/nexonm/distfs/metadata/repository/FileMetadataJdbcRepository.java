@@ -0,0 +1,177 @@
+package dev.nexonm.distfs.metadata.repository;
+
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.service.model.ChunkReplica;
+import dev.nexonm.distfs.metadata.service.model.UploadAllocation;
+import dev.nexonm.distfs.metadata.service.model.UploadAllocation.AllocatedChunk;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Plain JDBC writes of file metadata. Rows are written with batched statements and without the
+ * select-before-insert JPA does for entities with assigned ids.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FileMetadataJdbcRepository {
+
+    private static final String INSERT_FILE = "INSERT INTO file_properties " +
+            "(file_id, filename, total_chunks, total_size, hash, hash_algorithm, hash_verified, replication_factor) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_FILE_VERIFIED = "UPDATE file_properties SET hash_verified = TRUE " +
+            "WHERE file_id = ?";
+    private static final String UPDATE_FILE_REJECTED = "UPDATE file_properties SET hash_rejected = TRUE " +
+            "WHERE file_id = ?";
+    private static final String INSERT_CHUNK = "INSERT INTO chunk_properties " +
+            "(chunk_id, file_id, chunk_index, chunk_size, hash, hash_algorithm, content_chunk_id, content_file_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_CHUNK_NODE = "INSERT INTO chunk_node_mapping (chunk_id, node_id) VALUES (?, ?)";
+    private static final String DELETE_CHUNK_NODE = "DELETE FROM chunk_node_mapping WHERE chunk_id = ? AND node_id = ?";
+    private static final String INSERT_CONTENT_NODE = "INSERT INTO chunk_node_mapping (chunk_id, node_id) " +
+            "SELECT c.chunk_id, ? FROM chunk_properties c JOIN file_properties f ON f.file_id = c.file_id " +
+            "WHERE (c.chunk_id = ? OR c.content_chunk_id = ?) AND f.deleted_at IS NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM chunk_node_mapping m WHERE m.chunk_id = c.chunk_id AND m.node_id = ?)";
+
+    private static final String DELETE_CONTENT_NODE = "DELETE FROM chunk_node_mapping m USING chunk_properties c " +
+            "WHERE m.chunk_id = c.chunk_id AND m.node_id = ? AND (c.chunk_id = ? OR c.content_chunk_id = ?)";
+    private static final String INSERT_TOMBSTONE = "INSERT INTO replica_tombstones " +
+            "(tombstone_id, stored_chunk_id, stored_file_id, chunk_index, node_id, delete_after) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_DIRECT_UPLOAD = "INSERT INTO direct_uploads " +
+            "(file_id, filename, file_hash, file_size, hash_algorithm, expires_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_DIRECT_UPLOAD_CHUNK = "INSERT INTO direct_upload_chunks " +
+            "(chunk_id, file_id, chunk_index, chunk_size, hash_algorithm) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_DIRECT_UPLOAD_REPLICA = "INSERT INTO direct_upload_replicas " +
+            "(replica_id, file_id, chunk_id, node_id, node_order, committed) VALUES (?, ?, ?, ?, ?, FALSE)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${storage.metadata.batch-size:500}")
+    private int batchSize;
+
+    public void insertFile(FileProperties file) {
+        jdbcTemplate.update(INSERT_FILE, file.getId(), file.getFilename(), file.getTotalChunks(), file.getTotalSize(),
+                file.getHash(), file.getHashAlgorithm(), !Boolean.FALSE.equals(file.getHashVerified()),
+                file.getReplicationFactor());
+    }
+
+    public void markHashVerified(UUID fileId) {
+        jdbcTemplate.update(UPDATE_FILE_VERIFIED, fileId);
+    }
+
+    public void markHashRejected(UUID fileId) {
+        jdbcTemplate.update(UPDATE_FILE_REJECTED, fileId);
+    }
+
+    public void insertChunks(UUID fileId, List<ChunkProperties> chunks) {
+        jdbcTemplate.batchUpdate(INSERT_CHUNK, chunks, batchSize, (ps, chunk) -> {
+            ps.setObject(1, chunk.getId());
+            ps.setObject(2, fileId);
+            ps.setInt(3, chunk.getChunkIndex());
+            ps.setLong(4, chunk.getChunkSize());
+            ps.setString(5, chunk.getHash());
+            ps.setString(6, chunk.getHashAlgorithm());
+            ps.setObject(7, chunk.getContentChunkId());
+            ps.setObject(8, chunk.getContentFileId());
+        });
+    }
+
+    /**
+     * Inserts a mapping row for every storage node of every chunk.
+     * @return number of inserted rows
+     */
+    public int insertChunkNodeMappings(List<ChunkProperties> chunks) {
+        List<UUID[]> mappings = new ArrayList<>();
+        for (ChunkProperties chunk : chunks) {
+            for (StorageNode node : chunk.getStorageNodes()) {
+                mappings.add(new UUID[]{chunk.getId(), node.getId()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_CHUNK_NODE, mappings, batchSize, (ps, mapping) -> {
+            ps.setObject(1, mapping[0]);
+            ps.setObject(2, mapping[1]);
+        });
+        return mappings.size();
+    }
+
+    public void insertChunkNodeMapping(UUID chunkId, UUID nodeId) {
+        jdbcTemplate.update(INSERT_CHUNK_NODE, chunkId, nodeId);
+    }
+
+    /**
+     * Maps the node to every chunk of a file that is not deleted referencing the stored content.
+     * @return number of inserted rows
+     */
+    public int insertContentNodeMappings(UUID storedChunkId, UUID nodeId) {
+        return jdbcTemplate.update(INSERT_CONTENT_NODE, nodeId, storedChunkId, storedChunkId, nodeId);
+    }
+
+    /**
+     * Removes the node from every chunk referencing the stored content, including chunks of deleted files.
+     * @return number of deleted rows
+     */
+    public int deleteContentNodeMappings(UUID storedChunkId, UUID nodeId) {
+        return jdbcTemplate.update(DELETE_CONTENT_NODE, nodeId, storedChunkId, storedChunkId);
+    }
+
+    public void deleteChunkNodeMappings(List<ChunkReplica> replicas) {
+        jdbcTemplate.batchUpdate(DELETE_CHUNK_NODE, replicas, batchSize, (ps, replica) -> {
+            ps.setObject(1, replica.chunkId());
+            ps.setObject(2, replica.nodeId());
+        });
+    }
+
+    /**
+     * Records that the replicas must be deleted from their nodes after the given time, unless a chunk maps
+     * to the content on the node again.
+     */
+    public void insertReplicaTombstones(List<ChunkReplica> replicas, Instant deleteAfter) {
+        jdbcTemplate.batchUpdate(INSERT_TOMBSTONE, replicas, batchSize, (ps, replica) -> {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setObject(2, replica.storedChunkId());
+            ps.setObject(3, replica.storedFileId());
+            ps.setInt(4, replica.chunkIndex());
+            ps.setObject(5, replica.nodeId());
+            ps.setTimestamp(6, Timestamp.from(deleteAfter));
+        });
+    }
+
+    /**
+     * Inserts a direct upload allocation with its chunks and the nodes allocated for every chunk.
+     */
+    public void insertDirectUpload(UploadAllocation allocation) {
+        jdbcTemplate.update(INSERT_DIRECT_UPLOAD, allocation.fileId(), allocation.filename(), allocation.fileHash(),
+                allocation.fileSize(), allocation.hashAlgorithm(), Timestamp.from(allocation.expiresAt()));
+        List<AllocatedChunk> chunks = List.copyOf(allocation.chunks().values());
+        jdbcTemplate.batchUpdate(INSERT_DIRECT_UPLOAD_CHUNK, chunks, batchSize, (ps, chunk) -> {
+            ps.setObject(1, chunk.chunkId());
+            ps.setObject(2, allocation.fileId());
+            ps.setInt(3, chunk.chunkIndex());
+            ps.setLong(4, chunk.chunkSize());
+            ps.setString(5, chunk.hashAlgorithm());
+        });
+        List<Object[]> replicas = new ArrayList<>();
+        for (AllocatedChunk chunk : chunks) {
+            for (int order = 0; order < chunk.nodes().size(); order++) {
+                replicas.add(new Object[]{chunk.chunkId(), chunk.nodes().get(order).getId(), order});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_DIRECT_UPLOAD_REPLICA, replicas, batchSize, (ps, replica) -> {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setObject(2, allocation.fileId());
+            ps.setObject(3, replica[0]);
+            ps.setObject(4, replica[1]);
+            ps.setInt(5, (Integer) replica[2]);
+        });
+    }
+}
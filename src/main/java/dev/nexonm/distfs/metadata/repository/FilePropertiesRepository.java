@@ -1,13 +1,16 @@
 package dev.nexonm.distfs.metadata.repository;
 
 import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.service.model.ManifestRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -21,8 +24,56 @@ public interface FilePropertiesRepository extends JpaRepository<FileProperties,
 
     List<FileProperties> findByTotalSizeBetween(Long minSize, Long maxSize);
 
+    @Query("SELECT f FROM FileProperties f WHERE f.hash = :hash AND f.totalSize = :totalSize " +
+            "AND COALESCE(f.hashAlgorithm, 'SHA-256') = :hashAlgorithm AND f.deletedAt IS NULL " +
+            "AND (f.hashVerified IS NULL OR f.hashVerified = TRUE)")
+    List<FileProperties> findByContent(@Param("hash") String hash,
+                                       @Param("totalSize") Long totalSize,
+                                       @Param("hashAlgorithm") String hashAlgorithm);
+
+    /**
+     * Loads the download manifest of a file in one query, one row per chunk replica ordered by chunk index.
+     * @param fileId file id
+     * @return manifest rows, empty if the file does not exist or is deleted
+     */
+    @Query("SELECT new dev.nexonm.distfs.metadata.service.model.ManifestRow(f.filename, f.totalSize, c.id, " +
+            "c.contentChunkId, c.chunkIndex, c.chunkSize, c.hash, c.hashAlgorithm, n.hostAddr, n.port) " +
+            "FROM FileProperties f LEFT JOIN f.chunks c LEFT JOIN c.storageNodes n " +
+            "WHERE f.id = :fileId AND f.deletedAt IS NULL ORDER BY c.chunkIndex, n.hostAddr, n.port")
+    List<ManifestRow> findManifestRows(@Param("fileId") UUID fileId);
+
     @Query("SELECT f FROM FileProperties f JOIN f.chunks c JOIN c.storageNodes n " +
             "WHERE n.id = :nodeId GROUP BY f.id")
     List<FileProperties> findFilesStoredOnNode(@Param("nodeId") UUID nodeId);
-}
 
+    Optional<FileProperties> findByIdAndDeletedAtIsNull(UUID id);
+
+    long countByDeletedAtIsNotNull();
+
+    @Modifying
+    @Query("UPDATE FileProperties f SET f.deletedAt = :deletedAt WHERE f.id = :fileId AND f.deletedAt IS NULL")
+    int markDeleted(@Param("fileId") UUID fileId, @Param("deletedAt") Instant deletedAt);
+
+    /**
+     * @param limit maximum number of ids
+     * @return deleted files that have no chunk replica left on the nodes
+     */
+    @Query(value = "SELECT f.file_id FROM file_properties f WHERE f.deleted_at IS NOT NULL AND NOT EXISTS " +
+            "(SELECT 1 FROM chunk_properties c JOIN chunk_node_mapping m ON m.chunk_id = c.chunk_id " +
+            "WHERE c.file_id = f.file_id) ORDER BY f.deleted_at LIMIT :limit", nativeQuery = true)
+    List<UUID> findPurgeableFileIds(@Param("limit") int limit);
+
+    /**
+     * @param limit maximum number of ids
+     * @return files that are not deleted whose hashes were reported by the client and neither verified
+     * nor rejected yet
+     */
+    @Query(value = "SELECT f.file_id FROM file_properties f WHERE f.hash_verified = FALSE " +
+            "AND (f.hash_rejected IS NULL OR f.hash_rejected = FALSE) AND f.deleted_at IS NULL " +
+            "ORDER BY f.file_id LIMIT :limit", nativeQuery = true)
+    List<UUID> findUnverifiedFileIds(@Param("limit") int limit);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM file_properties WHERE file_id = :fileId", nativeQuery = true)
+    int deleteFileRow(@Param("fileId") UUID fileId);
+}
@@ -0,0 +1,24 @@
+package dev.nexonm.distfs.metadata.repository;
+
+import dev.nexonm.distfs.metadata.entity.ReplicaTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ReplicaTombstoneRepository extends JpaRepository<ReplicaTombstone, UUID> {
+
+    /**
+     * @param nodeIds healthy nodes
+     * @param now current time
+     * @param pageable batch size
+     * @return due tombstones on the given nodes, the oldest first
+     */
+    List<ReplicaTombstone> findByNodeIdInAndDeleteAfterBeforeOrderByDeleteAfter(Collection<UUID> nodeIds,
+                                                                                Instant now, Pageable pageable);
+}
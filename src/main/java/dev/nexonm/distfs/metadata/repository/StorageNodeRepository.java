@@ -2,6 +2,7 @@ package dev.nexonm.distfs.metadata.repository;
 
 import dev.nexonm.distfs.metadata.entity.StorageNode;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -22,8 +23,21 @@ public interface StorageNodeRepository extends JpaRepository<StorageNode, UUID>
             nativeQuery = true)
     List<StorageNode> findNodesNotContainingChunk(@Param("chunkId") UUID chunkId);
 
-    @Query("SELECT DISTINCT n FROM StorageNode n " +
-            "JOIN n.chunks c WHERE c.file.id = :fileId")
+    @Query("SELECT n FROM ChunkProperties c JOIN c.storageNodes n WHERE c.id = :chunkId")
+    List<StorageNode> findNodesContainingChunk(@Param("chunkId") UUID chunkId);
+
+    @Query("SELECT DISTINCT n FROM ChunkProperties c JOIN c.storageNodes n WHERE c.file.id = :fileId")
     List<StorageNode> findNodesContainingFileChunks(@Param("fileId") UUID fileId);
-}
 
+    @Modifying
+    @Query("UPDATE StorageNode n SET n.capacityBytes = :capacityBytes, n.usedBytes = :usedBytes, " +
+            "n.chunkCount = :chunkCount WHERE n.id = :nodeId")
+    int updateCapacity(@Param("nodeId") UUID nodeId,
+                       @Param("capacityBytes") Long capacityBytes,
+                       @Param("usedBytes") Long usedBytes,
+                       @Param("chunkCount") Long chunkCount);
+
+    @Modifying
+    @Query("UPDATE StorageNode n SET n.draining = :draining WHERE n.id = :nodeId")
+    int updateDraining(@Param("nodeId") UUID nodeId, @Param("draining") Boolean draining);
+}
@@ -0,0 +1,50 @@
+package dev.nexonm.distfs.metadata.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Bandwidth shared by the background chunk transfers, so they do not compete with client uploads and downloads.
+ * Transfers reserve their bytes up front and start once the reservations before them fit into
+ * {@code storage.background.bandwidth} bytes per second.
+ */
+@Component
+@Slf4j
+public class BandwidthBudget {
+
+    private final long bytesPerSecond;
+    // Time at which all reserved bytes are transferred
+    private long reservedUntilNanos = System.nanoTime();
+
+    public BandwidthBudget(@Value("${storage.background.bandwidth:20971520}") long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Reserves the bytes of a transfer.
+     * @param bytes bytes the transfer moves over the network
+     * @return completes when the transfer may start, immediately if the budget is unlimited
+     */
+    public Mono<Void> reserve(long bytes) {
+        if (bytesPerSecond <= 0) {
+            return Mono.empty();
+        }
+        long delayNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            // Unused bandwidth of an idle period is not saved up for later transfers
+            long start = Math.max(now, reservedUntilNanos);
+            reservedUntilNanos = start + bytes * 1_000_000_000L / bytesPerSecond;
+            delayNanos = start - now;
+        }
+        return delayNanos > 0 ? Mono.delay(Duration.ofNanos(delayNanos)).then() : Mono.empty();
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+}
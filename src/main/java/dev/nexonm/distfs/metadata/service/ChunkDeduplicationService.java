@@ -0,0 +1,98 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.dto.response.DeduplicationStatsResponse;
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.repository.ChunkPropertiesRepository;
+import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed chunk deduplication. A chunk whose hash and size are already stored is linked to the
+ * stored content and its replica set instead of being sent again. The stored content is removed from the nodes
+ * only when no chunk references it anymore.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkDeduplicationService {
+
+    private final ChunkPropertiesRepository chunkPropertiesRepository;
+    private final StorageNodeRepository storageNodeRepository;
+    private final HashGenerationService hashGenerationService;
+
+    private final AtomicLong deduplicatedChunks = new AtomicLong();
+    private final AtomicLong deduplicatedBytes = new AtomicLong();
+    private final AtomicLong savedTransferBytes = new AtomicLong();
+
+    @Value("${storage.dedupe.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Looks for already stored content of the chunk. If found, the chunk is linked to it.
+     * Only chunks hashed with a cryptographic algorithm are deduplicated, a checksum can collide.
+     *
+     * @param chunk           chunk with the hash computed
+     * @param plannedReplicas number of replicas the chunk would be sent to
+     * @return nodes storing the content, empty list if the chunk has to be sent
+     */
+    public Mono<List<StorageNode>> findStoredReplicas(ChunkProperties chunk, int plannedReplicas) {
+        if (!enabled || !hashGenerationService.getHashFunction(chunk.getHashAlgorithm()).isCryptographic()) {
+            return Mono.just(List.of());
+        }
+        return Mono.fromCallable(() -> linkToStoredContent(chunk, plannedReplicas))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Finds the stored content that files which are not deleted still reference.
+     *
+     * @param storedChunkIds ids of stored content
+     * @return stored chunk ids that must stay on the nodes
+     */
+    public Set<UUID> findContentReferencedByLiveFiles(Collection<UUID> storedChunkIds) {
+        if (storedChunkIds.isEmpty()) {
+            return Set.of();
+        }
+        return chunkPropertiesRepository.findStoredChunkIdsReferencedByLiveFiles(storedChunkIds);
+    }
+
+    public DeduplicationStatsResponse getStats() {
+        return new DeduplicationStatsResponse(enabled, deduplicatedChunks.get(), deduplicatedBytes.get(),
+                savedTransferBytes.get());
+    }
+
+    private List<StorageNode> linkToStoredContent(ChunkProperties chunk, int plannedReplicas) {
+        List<ChunkProperties> stored = chunkPropertiesRepository.findStoredChunksWithContent(
+                chunk.getHash(), chunk.getChunkSize(), chunk.getHashAlgorithm(), PageRequest.of(0, 1));
+        if (stored.isEmpty()) {
+            return List.of();
+        }
+        ChunkProperties storedChunk = stored.getFirst();
+        List<StorageNode> nodes = storageNodeRepository.findNodesContainingChunk(storedChunk.getId());
+        if (nodes.isEmpty()) {
+            return List.of();
+        }
+        chunk.setContentChunkId(storedChunk.getStoredChunkId());
+        chunk.setContentFileId(storedChunk.getStoredFileId());
+
+        deduplicatedChunks.incrementAndGet();
+        deduplicatedBytes.addAndGet(chunk.getChunkSize());
+        savedTransferBytes.addAndGet(chunk.getChunkSize() * plannedReplicas);
+        log.info("Chunk {} deduplicated against stored chunk {} on {} nodes",
+                chunk.getId(), chunk.getContentChunkId(), nodes.size());
+        return nodes;
+    }
+}
@@ -3,12 +3,22 @@ package dev.nexonm.distfs.metadata.service;
 import dev.nexonm.distfs.metadata.entity.StorageNode;
 import dev.nexonm.distfs.metadata.exception.StorageNodeException;
 import dev.nexonm.distfs.metadata.service.model.DistributionResult;
+import dev.nexonm.distfs.metadata.service.placement.PlacementMode;
+import dev.nexonm.distfs.metadata.service.placement.PlacementStrategy;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.LinkedList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -16,30 +26,110 @@ import java.util.List;
 public class ChunkDistributionService {
     private final NodeHealthRegistry nodeHealthRegistry;
     private final ReplicationFactorCalculator replicationFactorCalculator;
+    private final List<PlacementStrategy> placementStrategies;
 
+    private final Map<PlacementMode, PlacementStrategy> strategiesByMode = new EnumMap<>(PlacementMode.class);
 
-    public List<DistributionResult> distributeChunksWithReplication(List<StorageNode> nodes, int chunksNumber) {
-        // Round Robin implementation
-        List<StorageNode> storageNodesList = nodes.stream()
+    @Value("${storage.placement.strategy:LOAD_AWARE}")
+    private PlacementMode placementMode;
+
+    @Value("${storage.placement.high-water-mark:0.9}")
+    private double highWaterMark;
+
+    @PostConstruct
+    public void initialize() {
+        placementStrategies.forEach(strategy -> strategiesByMode.put(strategy.getMode(), strategy));
+        if (!strategiesByMode.containsKey(placementMode)) {
+            throw new IllegalStateException("No placement strategy for mode " + placementMode);
+        }
+    }
+
+    /**
+     * Assigns the replicas of new chunks to the healthy nodes with the configured placement strategy.
+     * Nodes filled above {@code storage.placement.high-water-mark} and draining nodes get no new chunks.
+     * A chunk never gets two replicas on the same node, with fewer writable nodes than the replication factor
+     * every chunk gets one replica per node.
+     * @param fileId uuid of the file the chunks belong to
+     * @param nodes known nodes
+     * @param chunksNumber number of chunks
+     * @param chunkSizeBytes expected size of a chunk
+     * @return list of distributions
+     */
+    public List<DistributionResult> distributeChunksWithReplication(UUID fileId, List<StorageNode> nodes,
+                                                                    int chunksNumber, long chunkSizeBytes) {
+        List<StorageNode> healthyNodes = nodes.stream()
                 .filter(node -> nodeHealthRegistry.isNodeHealthy(node.getId())).toList();
-        if (storageNodesList.isEmpty()) {
+        if (healthyNodes.isEmpty()) {
             throw new StorageNodeException("No active nodes. File cannot be transferred.");
         }
+        List<StorageNode> storageNodesList = healthyNodes.stream().filter(this::isWritable).toList();
+        if (storageNodesList.isEmpty()) {
+            throw new StorageNodeException("All active nodes are full or draining. File cannot be transferred.");
+        }
         // Get replication factor
         int replicationFactor = replicationFactorCalculator.getOptimalReplicationFactor();
-        List<DistributionResult> results = new LinkedList<>();
-        int nodeIndex = 0;
-        for (int chunkIndex = 0; chunkIndex < chunksNumber; chunkIndex++) {
-            for (int i = 0; i < replicationFactor; i++) {
-                if (nodeIndex >= storageNodesList.size()) {
-                    nodeIndex = 0;
-                }
-                results.add(new DistributionResult(storageNodesList.get(nodeIndex), chunkIndex + 1));
-                nodeIndex++;
-            }
+        if (replicationFactor > storageNodesList.size()) {
+            log.warn("Replication factor {} exceeds {} writable nodes, chunks get one replica per node",
+                    replicationFactor, storageNodesList.size());
+            replicationFactor = storageNodesList.size();
+        }
+        return strategiesByMode.get(placementMode)
+                .place(fileId, storageNodesList, chunksNumber, replicationFactor, chunkSizeBytes);
+    }
+
+    /**
+     * Picks a healthy node for a replica that could not be stored on its planned node.
+     * @param nodes candidate nodes
+     * @param excludedNodeIds nodes that already hold or were tried for the chunk
+     * @return replacement node, empty if no healthy node is left
+     */
+    public Optional<StorageNode> selectReplacementNode(List<StorageNode> nodes, Set<UUID> excludedNodeIds) {
+        List<StorageNode> candidates = nodes.stream()
+                .filter(node -> !excludedNodeIds.contains(node.getId()))
+                .filter(node -> nodeHealthRegistry.isNodeHealthy(node.getId()))
+                .filter(this::isWritable)
+                .toList();
+        if (candidates.isEmpty()) {
+            return Optional.empty();
         }
+        return Optional.of(candidates.get(ThreadLocalRandom.current().nextInt(candidates.size())));
+    }
+
+    /**
+     * Check whether the node may get new chunks: it is not draining and is below the high-water mark.
+     * @param node storage node
+     * @return true if chunks may be placed on the node
+     */
+    public boolean isWritable(StorageNode node) {
+        return !nodeHealthRegistry.isNodeDraining(node.getId()) && isBelowHighWaterMark(node);
+    }
+
+    /**
+     * A node that never reported its capacity is treated as having free space.
+     */
+    private boolean isBelowHighWaterMark(StorageNode node) {
+        return nodeHealthRegistry.getNodeCapacity(node.getId())
+                .map(capacity -> capacity.usage() < highWaterMark)
+                .orElse(true);
+    }
+
+    /**
+     * @param placement map of <chunk index, nodes that should store the chunk>
+     * @return number of replicas the chunks are written with
+     */
+    public static int replicationFactorOf(Map<Integer, List<StorageNode>> placement) {
+        return placement.values().stream().mapToInt(List::size).max().orElse(0);
+    }
 
-        return results;
+    /**
+     * Groups the distribution by chunk.
+     * @param distribution list of distributions
+     * @return map of <chunk index, nodes that should store the chunk>
+     */
+    public static Map<Integer, List<StorageNode>> groupByChunkIndex(List<DistributionResult> distribution) {
+        return distribution.stream()
+                .collect(Collectors.groupingBy(DistributionResult::chunkIndex,
+                        Collectors.mapping(DistributionResult::storageNode, Collectors.toList())));
     }
 
 }
@@ -0,0 +1,219 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.dto.response.GcStatsResponse;
+import dev.nexonm.distfs.metadata.entity.ReplicaTombstone;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.repository.ChunkPropertiesRepository;
+import dev.nexonm.distfs.metadata.repository.FileMetadataJdbcRepository;
+import dev.nexonm.distfs.metadata.repository.FilePropertiesRepository;
+import dev.nexonm.distfs.metadata.repository.ReplicaTombstoneRepository;
+import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import dev.nexonm.distfs.metadata.service.model.ChunkDeleteResult;
+import dev.nexonm.distfs.metadata.service.model.ChunkReplica;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Removes the chunks of deleted files from the storage nodes in the background.
+ * Every run takes a batch of replicas on healthy nodes, the oldest deletions first. A replica mapping is dropped
+ * only after its node confirmed the delete, failed replicas stay and are retried by a later run.
+ * A deleted file is purged from the database once none of its chunks has a replica left.
+ * Files are collected only {@code storage.gc.grace-period} seconds after their deletion, an upload that linked
+ * to their content before the deletion has completed by then and keeps the content referenced.
+ * Content unlinked from a node by a move or a replica removal, or left by an expired direct upload, is deleted
+ * through its {@link ReplicaTombstone} once the tombstone is due, unless a chunk maps to the content on that node.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkGarbageCollector {
+
+    private static final Duration DRAIN_RATE_WINDOW = Duration.ofMinutes(1);
+
+    private final ChunkPropertiesRepository chunkPropertiesRepository;
+    private final FilePropertiesRepository filePropertiesRepository;
+    private final FileMetadataJdbcRepository fileMetadataJdbcRepository;
+    private final ReplicaTombstoneRepository replicaTombstoneRepository;
+    private final StorageNodeRepository storageNodeRepository;
+    private final ParallelChunkDeleter parallelChunkDeleter;
+    private final ChunkDeduplicationService deduplicationService;
+    private final FileDeleteService fileDeleteService;
+    private final NodeHealthRegistry nodeHealthRegistry;
+
+    private final AtomicLong removedReplicas = new AtomicLong();
+    private final AtomicLong failedReplicaDeletes = new AtomicLong();
+    private final AtomicLong purgedFiles = new AtomicLong();
+    // <run time, replicas removed by the run> for the drain rate
+    private final Deque<Map.Entry<Instant, Integer>> recentRuns = new ArrayDeque<>();
+
+    @Value("${storage.gc.batch-size:500}")
+    private int batchSize;
+
+    @Value("${storage.gc.grace-period:600}")
+    private long gracePeriodSeconds;
+
+    @Scheduled(fixedDelayString = "${storage.gc.interval:10000}", timeUnit = TimeUnit.MILLISECONDS)
+    public void collect() {
+        try {
+            int removed = removeReplicas() + removeTombstonedReplicas();
+            recordRun(removed);
+            purgeFiles();
+        } catch (RuntimeException e) {
+            log.error("Chunk garbage collection failed: {}", e.getMessage());
+        }
+    }
+
+    public GcStatsResponse getStats() {
+        return new GcStatsResponse(
+                filePropertiesRepository.countByDeletedAtIsNotNull(),
+                chunkPropertiesRepository.countReplicasOfDeletedFiles() + replicaTombstoneRepository.count(),
+                removedReplicas.get(),
+                failedReplicaDeletes.get(),
+                purgedFiles.get(),
+                drainRate());
+    }
+
+    /**
+     * @return number of replica mappings removed
+     */
+    private int removeReplicas() {
+        Set<UUID> healthyNodes = nodeHealthRegistry.getHealthyNodeIds();
+        if (healthyNodes.isEmpty()) {
+            return 0;
+        }
+        List<ChunkReplica> batch = chunkPropertiesRepository.findReplicasOfDeletedFiles(
+                healthyNodes, Instant.now().minusSeconds(gracePeriodSeconds), PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        // Chunks of several deleted files can share stored content, the node is asked once per content
+        Map<List<UUID>, List<ChunkReplica>> byStoredContent = batch.stream()
+                .collect(Collectors.groupingBy(replica -> List.of(replica.storedChunkId(), replica.nodeId()),
+                        LinkedHashMap::new, Collectors.toList()));
+        Set<UUID> referenced = deduplicationService.findContentReferencedByLiveFiles(
+                batch.stream().map(ChunkReplica::storedChunkId).collect(Collectors.toSet()));
+
+        List<ChunkReplica> released = new ArrayList<>();
+        List<ChunkReplica> toDelete = new ArrayList<>();
+        byStoredContent.values().forEach(replicas -> {
+            if (referenced.contains(replicas.getFirst().storedChunkId())) {
+                // Content stays on the node for the files still using it
+                released.addAll(replicas);
+            } else {
+                toDelete.add(replicas.getFirst());
+            }
+        });
+        int failed = 0;
+        if (!toDelete.isEmpty()) {
+            for (ChunkDeleteResult result : parallelChunkDeleter.deleteReplicas(toDelete)) {
+                if (result.success()) {
+                    released.addAll(byStoredContent.get(
+                            List.of(result.replica().storedChunkId(), result.replica().nodeId())));
+                } else {
+                    failed++;
+                }
+            }
+        }
+        fileMetadataJdbcRepository.deleteChunkNodeMappings(released);
+        removedReplicas.addAndGet(released.size());
+        failedReplicaDeletes.addAndGet(failed);
+        log.info("Chunk garbage collection removed {} replicas, {} deletes failed and will be retried",
+                released.size(), failed);
+        return released.size();
+    }
+
+    /**
+     * @return number of tombstones resolved, by deleting the content or because it is referenced again
+     */
+    private int removeTombstonedReplicas() {
+        Set<UUID> healthyNodes = nodeHealthRegistry.getHealthyNodeIds();
+        if (healthyNodes.isEmpty()) {
+            return 0;
+        }
+        List<ReplicaTombstone> tombstones = replicaTombstoneRepository
+                .findByNodeIdInAndDeleteAfterBeforeOrderByDeleteAfter(healthyNodes, Instant.now(),
+                        PageRequest.of(0, batchSize));
+        if (tombstones.isEmpty()) {
+            return 0;
+        }
+        Map<UUID, StorageNode> nodes = storageNodeRepository.findAllById(
+                        tombstones.stream().map(ReplicaTombstone::getNodeId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(StorageNode::getId, node -> node));
+        List<UUID> resolved = new ArrayList<>();
+        // <replica to delete, its tombstones>, content tombstoned on a node more than once is deleted once
+        Map<ChunkReplica, List<UUID>> toDelete = new LinkedHashMap<>();
+        for (ReplicaTombstone tombstone : tombstones) {
+            StorageNode node = nodes.get(tombstone.getNodeId());
+            if (node == null || chunkPropertiesRepository.existsContentOnNode(tombstone.getStoredChunkId(),
+                    tombstone.getNodeId())) {
+                // The node was removed or a chunk maps to the content on the node again
+                resolved.add(tombstone.getId());
+                continue;
+            }
+            ChunkReplica replica = new ChunkReplica(tombstone.getStoredChunkId(), tombstone.getStoredChunkId(),
+                    tombstone.getStoredFileId(), tombstone.getChunkIndex(), node.getId(), node.getHostAddr(),
+                    node.getPort());
+            toDelete.computeIfAbsent(replica, key -> new ArrayList<>()).add(tombstone.getId());
+        }
+        int failed = 0;
+        if (!toDelete.isEmpty()) {
+            for (ChunkDeleteResult result : parallelChunkDeleter.deleteReplicas(List.copyOf(toDelete.keySet()))) {
+                if (result.success()) {
+                    resolved.addAll(toDelete.get(result.replica()));
+                } else {
+                    failed++;
+                }
+            }
+        }
+        replicaTombstoneRepository.deleteAllByIdInBatch(resolved);
+        failedReplicaDeletes.addAndGet(failed);
+        log.info("Chunk garbage collection resolved {} replica tombstones, {} deletes failed and will be retried",
+                resolved.size(), failed);
+        return resolved.size();
+    }
+
+    private void purgeFiles() {
+        for (UUID fileId : filePropertiesRepository.findPurgeableFileIds(batchSize)) {
+            fileDeleteService.purgeFile(fileId);
+            purgedFiles.incrementAndGet();
+        }
+    }
+
+    private synchronized void recordRun(int removed) {
+        Instant now = Instant.now();
+        recentRuns.addLast(Map.entry(now, removed));
+        while (recentRuns.getFirst().getKey().isBefore(now.minus(DRAIN_RATE_WINDOW))) {
+            recentRuns.removeFirst();
+        }
+    }
+
+    /**
+     * @return replicas removed per second over the last minute
+     */
+    private synchronized double drainRate() {
+        Instant since = Instant.now().minus(DRAIN_RATE_WINDOW);
+        long removed = recentRuns.stream()
+                .filter(run -> run.getKey().isAfter(since))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        return (double) removed / DRAIN_RATE_WINDOW.toSeconds();
+    }
+}
@@ -0,0 +1,69 @@
+package dev.nexonm.distfs.metadata.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Dedicated pool for chunk hashing shared by all uploads.
+ * The number of bytes waiting for or being hashed is limited, a caller blocks until there is room for its chunk.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkHashingExecutor {
+
+    private final HashGenerationService hashGenerationService;
+
+    @Value("${chunk.hash.parallelism:0}") // 0 means number of available cores
+    private int configuredParallelism;
+
+    @Value("${chunk.hash.max-buffered-bytes:268435456}") // 268435456 bytes = 256MB
+    private int maxBufferedBytes;
+
+    @Getter
+    private int parallelism;
+    private ForkJoinPool pool;
+    private Semaphore bufferedBytes;
+
+    @PostConstruct
+    public void initializePool() {
+        parallelism = configuredParallelism > 0 ? configuredParallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(parallelism);
+        bufferedBytes = new Semaphore(maxBufferedBytes);
+        log.info("Chunk hashing pool started with parallelism {} and {} bytes limit", parallelism, maxBufferedBytes);
+    }
+
+    @PreDestroy
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * Hashes the chunk on the shared pool.
+     * Blocks the caller while the pool already holds {@code chunk.hash.max-buffered-bytes} bytes.
+     * @param data chunk content
+     * @return future with the hash as a hex string
+     */
+    public CompletableFuture<String> hashChunk(byte[] data) {
+        // A chunk bigger than the whole limit takes the whole limit, otherwise it would never be admitted
+        int permits = Math.min(data.length, maxBufferedBytes);
+        bufferedBytes.acquireUninterruptibly(permits);
+        try {
+            return CompletableFuture.supplyAsync(() -> hashGenerationService.generateChunkHash(data), pool)
+                    .whenComplete((hash, e) -> bufferedBytes.release(permits));
+        } catch (RejectedExecutionException e) {
+            bufferedBytes.release(permits);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.exception.StorageNodeException;
+import dev.nexonm.distfs.metadata.repository.ChunkPropertiesRepository;
+import dev.nexonm.distfs.metadata.repository.FileMetadataJdbcRepository;
+import dev.nexonm.distfs.metadata.service.model.ChunkReplica;
+import dev.nexonm.distfs.metadata.service.model.StoredContent;
+import dev.nexonm.distfs.metadata.service.model.TransferType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copies and moves stored chunk content between storage nodes through this server. The content is downloaded from
+ * one of its replicas, verified against the chunk hash and uploaded to the new nodes, then every chunk referencing
+ * the content is mapped to them. All copies go through the {@link BandwidthBudget}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkReplicator {
+
+    private final WebClient webClient;
+    private final ChunkPropertiesRepository chunkPropertiesRepository;
+    private final FileMetadataJdbcRepository fileMetadataJdbcRepository;
+    private final ParallelChunkSender parallelChunkSender;
+    private final HashGenerationService hashGenerationService;
+    private final NodeConcurrencyLimiter nodeConcurrencyLimiter;
+    private final BandwidthBudget bandwidthBudget;
+    private final FileAllocationCache fileAllocationCache;
+
+    // Content being copied, it must not lose a replica meanwhile
+    private final Set<UUID> contentInTransfer = ConcurrentHashMap.newKeySet();
+
+    @Value("${storage.replication.download-path:/api/chunk/download}")
+    private String downloadPath;
+
+    @Value("${chunk.send.timeout.single:30}")
+    private long timeoutSeconds;
+
+    @Value("${storage.gc.grace-period:600}")
+    private long gracePeriodSeconds;
+
+    /**
+     * Loads the stored content with the chunks and nodes referencing it.
+     * @param storedChunkIds ids of stored content
+     * @return map of <stored chunk id, content>, content referenced only by deleted files is missing
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, StoredContent> loadContents(Collection<UUID> storedChunkIds) {
+        Map<UUID, List<ChunkProperties>> chunksByContent = new LinkedHashMap<>();
+        for (ChunkProperties chunk : chunkPropertiesRepository.findLiveChunksWithContent(storedChunkIds)) {
+            chunksByContent.computeIfAbsent(chunk.getStoredChunkId(), key -> new ArrayList<>()).add(chunk);
+        }
+        Map<UUID, StoredContent> contents = new LinkedHashMap<>();
+        chunksByContent.forEach((storedChunkId, chunks) -> {
+            ChunkProperties chunk = chunks.getFirst();
+            Set<UUID> fileIds = new HashSet<>();
+            Map<UUID, StorageNode> nodes = new LinkedHashMap<>();
+            chunks.forEach(referencing -> {
+                fileIds.add(referencing.getFile().getId());
+                referencing.getStorageNodes().forEach(node -> nodes.putIfAbsent(node.getId(), node));
+            });
+            contents.put(storedChunkId, new StoredContent(storedChunkId, chunk.getStoredFileId(),
+                    chunk.getChunkIndex(), chunk.getChunkSize(), chunk.getHash(), chunk.getHashAlgorithm(),
+                    fileIds, new ArrayList<>(nodes.values())));
+        });
+        return contents;
+    }
+
+    /**
+     * Copies the content to the target nodes. It is downloaded once, from the first source that returns it
+     * intact, and uploaded to every target.
+     * @param content content to copy
+     * @param sources healthy nodes holding the content
+     * @param targets nodes that should get the content
+     * @return targets that stored and were mapped to the content, empty if the content is busy
+     */
+    public Mono<List<StorageNode>> copy(StoredContent content, List<StorageNode> sources, List<StorageNode> targets) {
+        return inTransfer(content, copyContent(content, sources, targets));
+    }
+
+    private Mono<List<StorageNode>> copyContent(StoredContent content, List<StorageNode> sources,
+                                                List<StorageNode> targets) {
+        if (targets.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        ChunkProperties chunk = storedChunk(content);
+        return bandwidthBudget.reserve(content.chunkSize() * targets.size())
+                .then(read(content, sources))
+                .flatMapMany(data -> Flux.fromIterable(targets)
+                        .flatMap(target -> parallelChunkSender.sendStoredChunk(target, data, chunk)
+                                .filter(Boolean::booleanValue)
+                                .map(stored -> target)))
+                .publishOn(Schedulers.boundedElastic())
+                .map(target -> {
+                    fileMetadataJdbcRepository.insertContentNodeMappings(content.storedChunkId(), target.getId());
+                    return target;
+                })
+                .collectList()
+                .doOnNext(stored -> {
+                    if (!stored.isEmpty()) {
+                        content.fileIds().forEach(fileAllocationCache::invalidate);
+                    }
+                });
+    }
+
+    /**
+     * Claims the content for the transfer when it is subscribed, the transfer is skipped if the content is busy.
+     */
+    private <T> Mono<T> inTransfer(StoredContent content, Mono<T> transfer) {
+        return Mono.defer(() -> {
+            if (parallelChunkSender.isChunkInFlight(content.storedChunkId())
+                    || !contentInTransfer.add(content.storedChunkId())) {
+                log.info("Chunk {} is busy, skipping its transfer", content.storedChunkId());
+                return Mono.empty();
+            }
+            return transfer.doFinally(signal -> contentInTransfer.remove(content.storedChunkId()));
+        });
+    }
+
+    /**
+     * Content that is still being uploaded, copied or moved may not have all its replicas recorded yet,
+     * it must not be copied, moved or lose a replica meanwhile.
+     * @param storedChunkId id of stored content
+     * @return true while the content is being uploaded or transferred to another node
+     */
+    public boolean isBusy(UUID storedChunkId) {
+        return parallelChunkSender.isChunkInFlight(storedChunkId) || contentInTransfer.contains(storedChunkId);
+    }
+
+    /**
+     * Reads the content from the first source that returns it intact, i.e. matching the chunk hash and size.
+     * @param content content to read
+     * @param sources nodes holding the content
+     * @return content, an error if no source returned it intact
+     */
+    public Mono<byte[]> read(StoredContent content, List<StorageNode> sources) {
+        return bandwidthBudget.reserve(content.chunkSize())
+                .then(Flux.fromIterable(sources)
+                        .concatMap(source -> download(source, content)
+                                .onErrorResume(e -> {
+                                    log.warn("Failed to read chunk {} from node {}:{}: {}", content.storedChunkId(),
+                                            source.getHostAddr(), source.getPort(), e.getMessage());
+                                    return Mono.empty();
+                                }), 1)
+                        .next())
+                .switchIfEmpty(Mono.error(new StorageNodeException(
+                        "No intact replica of chunk " + content.storedChunkId() + " could be read")));
+    }
+
+    /**
+     * Moves the content from one node to another. The content is copied first and removed from the source node
+     * only after the target stored it, so the number of replicas never drops during the move. The source copy
+     * itself is deleted after {@code storage.gc.grace-period} seconds.
+     * @param content content to move
+     * @param sources healthy nodes holding the content
+     * @param from node to remove the content from
+     * @param to node that should get the content
+     * @return true if the content was moved, empty if the content is busy
+     */
+    public Mono<Boolean> move(StoredContent content, List<StorageNode> sources, StorageNode from, StorageNode to) {
+        return inTransfer(content, copyContent(content, sources, List.of(to))
+                .filter(stored -> !stored.isEmpty())
+                .publishOn(Schedulers.boundedElastic())
+                .map(stored -> {
+                    removeReplica(content, from);
+                    return true;
+                })
+                .defaultIfEmpty(false));
+    }
+
+    /**
+     * Removes the node from the replicas of the content. An upload may have linked to the content on the node
+     * just before, so the copy on the node is left to the {@link ChunkGarbageCollector} through a tombstone. It is
+     * deleted after {@code storage.gc.grace-period} seconds and only if no chunk maps to it again.
+     * @param content stored content
+     * @param node node that should not hold the content anymore
+     */
+    public void removeReplica(StoredContent content, StorageNode node) {
+        // The tombstone is written first, a crash before the mapping is deleted leaves a tombstone the GC drops
+        ChunkReplica replica = new ChunkReplica(content.storedChunkId(), content.storedChunkId(),
+                content.storedFileId(), content.chunkIndex(), node.getId(), node.getHostAddr(), node.getPort());
+        fileMetadataJdbcRepository.insertReplicaTombstones(List.of(replica),
+                Instant.now().plusSeconds(gracePeriodSeconds));
+        fileMetadataJdbcRepository.deleteContentNodeMappings(content.storedChunkId(), node.getId());
+        content.fileIds().forEach(fileAllocationCache::invalidate);
+    }
+
+    private Mono<byte[]> download(StorageNode node, StoredContent content) {
+        String url = String.format("http://%s:%d%s?fileId=%s&chunkId=%s&chunkIndex=%d", node.getHostAddr(),
+                node.getPort(), downloadPath, content.storedFileId(), content.storedChunkId(), content.chunkIndex());
+        Flux<DataBuffer> body = webClient.get()
+                .uri(url)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, response -> Mono.error(
+                        new StorageNodeException("Error reading chunk with status: " + response.statusCode())))
+                .bodyToFlux(DataBuffer.class);
+        return nodeConcurrencyLimiter.limit(node.getId(), TransferType.DOWNLOAD, content.chunkSize(),
+                        DataBufferUtils.join(body, (int) Math.min(Integer.MAX_VALUE, content.chunkSize()))
+                                .timeout(Duration.ofSeconds(timeoutSeconds)))
+                .map(buffer -> {
+                    byte[] data = new byte[buffer.readableByteCount()];
+                    buffer.read(data);
+                    DataBufferUtils.release(buffer);
+                    return data;
+                })
+                .flatMap(data -> {
+                    String hash = hashGenerationService.generateHash(content.hashAlgorithm(), data);
+                    if (data.length != content.chunkSize() || !hash.equalsIgnoreCase(content.hash())) {
+                        return Mono.error(new StorageNodeException("Chunk content does not match its hash"));
+                    }
+                    return Mono.just(data);
+                });
+    }
+
+    /**
+     * Chunk properties under which the content is stored on the nodes, not attached to the persistence context.
+     */
+    private ChunkProperties storedChunk(StoredContent content) {
+        return ChunkProperties.builder()
+                .id(content.storedChunkId())
+                .file(FileProperties.builder().id(content.storedFileId()).build())
+                .chunkIndex(content.chunkIndex())
+                .chunkSize(content.chunkSize())
+                .hash(content.hash())
+                .hashAlgorithm(content.hashAlgorithm() != null
+                        ? content.hashAlgorithm() : HashGenerationService.LEGACY_HASH_ALGORITHM)
+                .build();
+    }
+}
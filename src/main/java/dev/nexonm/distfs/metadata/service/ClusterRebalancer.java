@@ -0,0 +1,274 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.config.SchedulingConfig;
+import dev.nexonm.distfs.metadata.dto.response.NodeBalanceResponse;
+import dev.nexonm.distfs.metadata.dto.response.RebalanceStatsResponse;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.repository.ChunkPropertiesRepository;
+import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import dev.nexonm.distfs.metadata.service.model.NodeCapacity;
+import dev.nexonm.distfs.metadata.service.model.NodeUsage;
+import dev.nexonm.distfs.metadata.service.model.StoredContent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Moves stored chunks between nodes so that every node holds a share of the data proportional to its capacity,
+ * e.g. after new nodes were registered. Every run first moves a batch of content off the draining nodes, then
+ * moves content from the nodes above their target to the nodes below it while any node is off its target by more
+ * than {@code storage.rebalance.threshold}. A move copies the content and removes it from the old node after the
+ * copy is stored, all copies go through the {@link BandwidthBudget}. Content that is being uploaded, repaired or
+ * moved is left alone.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterRebalancer {
+
+    private final ChunkPropertiesRepository chunkPropertiesRepository;
+    private final StorageNodeRepository storageNodeRepository;
+    private final NodeHealthRegistry nodeHealthRegistry;
+    private final ChunkDistributionService chunkDistributionService;
+    private final ChunkReplicator chunkReplicator;
+
+    private final AtomicLong movedReplicas = new AtomicLong();
+    private final AtomicLong drainedReplicas = new AtomicLong();
+    private final AtomicLong failedMoves = new AtomicLong();
+    private final AtomicLong movedBytes = new AtomicLong();
+
+    @Value("${storage.rebalance.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.rebalance.threshold:0.1}")
+    private double threshold;
+
+    @Value("${storage.rebalance.batch-size:20}")
+    private int batchSize;
+
+    @Value("${storage.rebalance.concurrency:2}")
+    private int concurrency;
+
+    @Value("${storage.rebalance.timeout:600}")
+    private long runTimeoutSeconds;
+
+    private record NodeBalance(StorageNode node, long chunkCount, long storedBytes, Long targetBytes) {
+    }
+
+    private record Move(StoredContent content, StorageNode from, StorageNode to, boolean drain) {
+    }
+
+    @Scheduled(fixedDelayString = "${storage.rebalance.interval:60000}", timeUnit = TimeUnit.MILLISECONDS,
+            scheduler = SchedulingConfig.BACKGROUND_SCHEDULER)
+    public void rebalance() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<StorageNode> nodes = storageNodeRepository.findAll();
+            Set<UUID> planned = new HashSet<>();
+            List<Move> moves = new ArrayList<>(planDrainMoves(nodes, planned));
+            if (moves.size() < batchSize) {
+                moves.addAll(planBalanceMoves(computeBalance(nodes), planned, batchSize - moves.size()));
+            }
+            execute(moves);
+        } catch (RuntimeException e) {
+            log.error("Cluster rebalance failed: {}", e.getMessage());
+        }
+    }
+
+    public RebalanceStatsResponse getStats() {
+        List<NodeBalanceResponse> nodes = computeBalance(storageNodeRepository.findAll()).stream()
+                .map(balance -> new NodeBalanceResponse(balance.node().getId().toString(),
+                        balance.node().getHostAddr(), balance.node().getPort(), balance.chunkCount(),
+                        balance.storedBytes(), balance.targetBytes(),
+                        nodeHealthRegistry.isNodeDraining(balance.node().getId())))
+                .toList();
+        return new RebalanceStatsResponse(enabled, threshold, movedReplicas.get(), drainedReplicas.get(),
+                failedMoves.get(), movedBytes.get(), nodes);
+    }
+
+    /**
+     * Targets are set for the healthy nodes that are not draining. Data of the draining nodes is counted as well,
+     * it ends up on the other nodes. Nodes that never reported their capacity weigh as much as an average node.
+     */
+    private List<NodeBalance> computeBalance(List<StorageNode> nodes) {
+        Map<UUID, NodeUsage> usage = chunkPropertiesRepository.findNodeUsage().stream()
+                .collect(Collectors.toMap(NodeUsage::getNodeId, Function.identity()));
+        List<StorageNode> members = nodes.stream()
+                .filter(node -> nodeHealthRegistry.isNodeHealthy(node.getId()))
+                .filter(node -> !nodeHealthRegistry.isNodeDraining(node.getId()))
+                .toList();
+        double averageCapacity = members.stream()
+                .map(node -> nodeHealthRegistry.getNodeCapacity(node.getId()))
+                .flatMap(Optional::stream)
+                .mapToLong(NodeCapacity::capacityBytes)
+                .average()
+                .orElse(1);
+        Map<UUID, Double> weights = new HashMap<>();
+        members.forEach(node -> weights.put(node.getId(), nodeHealthRegistry.getNodeCapacity(node.getId())
+                .map(capacity -> (double) capacity.capacityBytes())
+                .orElse(averageCapacity)));
+        double totalWeight = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+        long totalBytes = nodes.stream()
+                .filter(node -> weights.containsKey(node.getId()) || nodeHealthRegistry.isNodeDraining(node.getId()))
+                .map(node -> usage.get(node.getId()))
+                .filter(Objects::nonNull)
+                .mapToLong(NodeUsage::getStoredBytes)
+                .sum();
+
+        return nodes.stream()
+                .map(node -> {
+                    NodeUsage nodeUsage = usage.get(node.getId());
+                    Double weight = weights.get(node.getId());
+                    return new NodeBalance(node,
+                            nodeUsage != null ? nodeUsage.getChunkCount() : 0,
+                            nodeUsage != null ? nodeUsage.getStoredBytes() : 0,
+                            weight != null ? Math.round(totalBytes * weight / totalWeight) : null);
+                })
+                .toList();
+    }
+
+    /**
+     * Every content of a draining node goes to a writable node that does not hold it yet.
+     */
+    private List<Move> planDrainMoves(List<StorageNode> nodes, Set<UUID> planned) {
+        List<Move> moves = new ArrayList<>();
+        for (StorageNode drainingNode : nodes) {
+            if (!nodeHealthRegistry.isNodeDraining(drainingNode.getId()) || moves.size() >= batchSize) {
+                continue;
+            }
+            List<UUID> storedChunkIds =
+                    chunkPropertiesRepository.findContentOnNode(drainingNode.getId(), batchSize - moves.size());
+            for (StoredContent content : chunkReplicator.loadContents(storedChunkIds).values()) {
+                if (chunkReplicator.isBusy(content.storedChunkId())) {
+                    continue;
+                }
+                Set<UUID> excluded = content.nodes().stream().map(StorageNode::getId).collect(Collectors.toSet());
+                Optional<StorageNode> target = chunkDistributionService.selectReplacementNode(nodes, excluded);
+                if (target.isEmpty()) {
+                    log.warn("No node can take chunk {} from draining node {}:{}", content.storedChunkId(),
+                            drainingNode.getHostAddr(), drainingNode.getPort());
+                    continue;
+                }
+                if (planned.add(content.storedChunkId())) {
+                    moves.add(new Move(content, drainingNode, target.get(), true));
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Pairs the nodes with the most data above their target with the nodes with the most room below it.
+     */
+    private List<Move> planBalanceMoves(List<NodeBalance> balances, Set<UUID> planned, int limit) {
+        List<NodeBalance> members = balances.stream().filter(balance -> balance.targetBytes() != null).toList();
+        boolean unbalanced = members.stream().anyMatch(balance ->
+                Math.abs(balance.storedBytes() - balance.targetBytes()) > balance.targetBytes() * threshold);
+        if (members.size() < 2 || !unbalanced) {
+            return List.of();
+        }
+        Map<UUID, Long> excess = new HashMap<>();
+        Map<UUID, Long> deficit = new HashMap<>();
+        members.forEach(balance -> {
+            long difference = balance.storedBytes() - balance.targetBytes();
+            if (difference > 0) {
+                excess.put(balance.node().getId(), difference);
+            } else if (difference < 0 && chunkDistributionService.isWritable(balance.node())) {
+                deficit.put(balance.node().getId(), -difference);
+            }
+        });
+        List<NodeBalance> donors = members.stream()
+                .filter(balance -> excess.containsKey(balance.node().getId()))
+                .sorted(Comparator.comparing((NodeBalance balance) -> excess.get(balance.node().getId())).reversed())
+                .toList();
+        List<NodeBalance> receivers = members.stream()
+                .filter(balance -> deficit.containsKey(balance.node().getId()))
+                .sorted(Comparator.comparing((NodeBalance balance) -> deficit.get(balance.node().getId())).reversed())
+                .toList();
+
+        List<Move> moves = new ArrayList<>();
+        for (NodeBalance donor : donors) {
+            UUID donorId = donor.node().getId();
+            for (NodeBalance receiver : receivers) {
+                UUID receiverId = receiver.node().getId();
+                if (moves.size() >= limit || excess.get(donorId) <= 0) {
+                    break;
+                }
+                if (deficit.get(receiverId) <= 0) {
+                    continue;
+                }
+                List<UUID> storedChunkIds = chunkPropertiesRepository.findContentOnNodeMissingFrom(
+                        donorId, receiverId, limit - moves.size());
+                for (StoredContent content : chunkReplicator.loadContents(storedChunkIds).values()) {
+                    if (excess.get(donorId) <= 0 || deficit.get(receiverId) <= 0) {
+                        break;
+                    }
+                    if (!chunkReplicator.isBusy(content.storedChunkId()) && planned.add(content.storedChunkId())) {
+                        moves.add(new Move(content, donor.node(), receiver.node(), false));
+                        excess.merge(donorId, -content.chunkSize(), Long::sum);
+                        deficit.merge(receiverId, -content.chunkSize(), Long::sum);
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    private void execute(List<Move> moves) {
+        if (moves.isEmpty()) {
+            return;
+        }
+        Set<UUID> healthyNodes = nodeHealthRegistry.getHealthyNodeIds();
+        List<Mono<Boolean>> transfers = moves.stream()
+                .map(move -> {
+                    List<StorageNode> sources = move.content().nodes().stream()
+                            .filter(node -> healthyNodes.contains(node.getId()))
+                            .toList();
+                    // The move is skipped if a repair or an upload took the content since planning
+                    return chunkReplicator.move(move.content(), sources, move.from(), move.to())
+                            .onErrorResume(e -> {
+                                log.warn("Failed to move chunk {} from node {}:{}: {}",
+                                        move.content().storedChunkId(), move.from().getHostAddr(),
+                                        move.from().getPort(), e.getMessage());
+                                return Mono.just(false);
+                            })
+                            .doOnNext(moved -> {
+                                if (!moved) {
+                                    failedMoves.incrementAndGet();
+                                    return;
+                                }
+                                (move.drain() ? drainedReplicas : movedReplicas).incrementAndGet();
+                                movedBytes.addAndGet(move.content().chunkSize());
+                            });
+                })
+                .toList();
+        Long moved = Flux.fromIterable(transfers)
+                .flatMapSequential(transfer -> transfer, concurrency)
+                .filter(Boolean::booleanValue)
+                .count()
+                .block(Duration.ofSeconds(runTimeoutSeconds));
+        log.info("Cluster rebalance moved {}/{} chunks", moved, moves.size());
+    }
+}
@@ -0,0 +1,315 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.dto.request.ChunkCommitRequest;
+import dev.nexonm.distfs.metadata.dto.request.FileAllocateRequest;
+import dev.nexonm.distfs.metadata.dto.response.ChunkAllocationResponse;
+import dev.nexonm.distfs.metadata.dto.response.ChunkCommitResponse;
+import dev.nexonm.distfs.metadata.dto.response.FileAllocationResponse;
+import dev.nexonm.distfs.metadata.dto.response.HostResponse;
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.DirectUpload;
+import dev.nexonm.distfs.metadata.entity.DirectUploadChunk;
+import dev.nexonm.distfs.metadata.entity.DirectUploadReplica;
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.exception.FileNotFoundException;
+import dev.nexonm.distfs.metadata.repository.DirectUploadChunkRepository;
+import dev.nexonm.distfs.metadata.repository.DirectUploadReplicaRepository;
+import dev.nexonm.distfs.metadata.repository.DirectUploadRepository;
+import dev.nexonm.distfs.metadata.repository.FileMetadataJdbcRepository;
+import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import dev.nexonm.distfs.metadata.service.model.ChunkReplica;
+import dev.nexonm.distfs.metadata.service.model.UploadAllocation;
+import dev.nexonm.distfs.metadata.service.model.UploadAllocation.AllocatedChunk;
+import dev.nexonm.distfs.metadata.service.model.UploadAllocation.CommittedChunk;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Upload where the client sends the chunks to the storage nodes itself, the same way downloads already work.
+ * The server only allocates chunk ids and replica hosts, then records every chunk once the client reports the
+ * hosts that confirmed it. The allocation and the committed chunks are kept in their own tables, so an upload
+ * survives a restart, and the file is persisted once all chunks are committed. Allocations that are not completed
+ * in time are dropped and their chunks are tombstoned, {@link ChunkGarbageCollector} removes them from the nodes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DirectUploadService {
+
+    private final StorageNodeRepository storageNodeRepository;
+    private final ChunkSizeCalculator chunkSizeCalculator;
+    private final ChunkDistributionService chunkDistributionService;
+    private final HashGenerationService hashGenerationService;
+    private final FileMetadataWriter fileMetadataWriter;
+    private final FileMetadataJdbcRepository fileMetadataJdbcRepository;
+    private final DirectUploadRepository directUploadRepository;
+    private final DirectUploadChunkRepository directUploadChunkRepository;
+    private final DirectUploadReplicaRepository directUploadReplicaRepository;
+
+    @Value("${storage.upload.direct.allocation-ttl:900}")
+    private long allocationTtlSeconds;
+
+    @Value("${storage.upload.direct.cleanup-batch-size:100}")
+    private int cleanupBatchSize;
+
+    /**
+     * Allocates chunk ids and replica hosts for a file. Chunks have the fixed size returned in the response,
+     * the client hashes every chunk with the returned algorithm and sends it to all of its hosts.
+     * @param request file name, hash and size
+     * @return allocation for the client
+     */
+    @Transactional
+    public FileAllocationResponse allocate(FileAllocateRequest request) {
+        validateAllocateRequest(request);
+        long fileSize = request.getFileSizeBytes();
+        int chunkSize = chunkSizeCalculator.calculateOptimalChunkSize(fileSize);
+        int chunkCount = (int) Math.ceil((double) fileSize / chunkSize);
+        UUID fileId = UUID.randomUUID();
+        Map<Integer, List<StorageNode>> placement = ChunkDistributionService.groupByChunkIndex(
+                chunkDistributionService.distributeChunksWithReplication(fileId, storageNodeRepository.findAll(),
+                        chunkCount, chunkSize));
+
+        String chunkHashAlgorithm = hashGenerationService
+                .getHashFunction(hashGenerationService.getChunkHashAlgorithm()).getName();
+        Map<UUID, AllocatedChunk> chunks = new LinkedHashMap<>();
+        for (int chunkIndex = 1; chunkIndex <= chunkCount; chunkIndex++) {
+            long size = Math.min(chunkSize, fileSize - (long) (chunkIndex - 1) * chunkSize);
+            UUID chunkId = UUID.randomUUID();
+            chunks.put(chunkId, new AllocatedChunk(chunkId, chunkIndex, size, chunkHashAlgorithm,
+                    placement.getOrDefault(chunkIndex, List.of())));
+        }
+        UploadAllocation allocation = new UploadAllocation(
+                fileId,
+                StringUtils.cleanPath(request.getFilename()),
+                request.getFileHash().toLowerCase(Locale.ROOT),
+                fileSize,
+                hashGenerationService.getHashFunction(hashGenerationService.getFileHashAlgorithm()).getName(),
+                Instant.now().plusSeconds(allocationTtlSeconds),
+                chunks);
+        fileMetadataJdbcRepository.insertDirectUpload(allocation);
+        log.info("Allocated {} chunks for direct upload of file {}", chunkCount, allocation.fileId());
+
+        return FileAllocationResponse.builder()
+                .fileUUID(allocation.fileId().toString())
+                .filename(allocation.filename())
+                .fileSizeBytes(fileSize)
+                .chunkSizeBytes(chunkSize)
+                .expiresAt(allocation.expiresAt().toString())
+                .chunks(chunks.values().stream().map(this::toAllocationResponse).toList())
+                .build();
+    }
+
+    /**
+     * Records a chunk stored by the client. The file is persisted with the last committed chunk.
+     * @param request chunk id, its hash and hosts that confirmed storing it
+     * @return commit progress of the file
+     */
+    @Transactional
+    public ChunkCommitResponse commitChunk(ChunkCommitRequest request) {
+        validateCommitRequest(request);
+        UploadAllocation allocation = directUploadRepository
+                .findByIdForUpdate(UUID.fromString(request.getFileUUID()))
+                .map(this::loadAllocation)
+                .filter(loaded -> !loaded.isExpired(Instant.now()))
+                .orElseThrow(() -> new FileNotFoundException(String.format(
+                        "There is no active upload allocation for file UUID=%s", request.getFileUUID())));
+        AllocatedChunk chunk = allocation.chunks().get(UUID.fromString(request.getChunkUUID()));
+        if (chunk == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Chunk %s is not allocated for file %s", request.getChunkUUID(), request.getFileUUID()));
+        }
+        List<StorageNode> confirmedNodes = chunk.nodes().stream()
+                .filter(node -> request.getHosts().stream().anyMatch(host ->
+                        node.getHostAddr().equals(host.getHost()) && node.getPort().equals(host.getPort())))
+                .toList();
+        if (confirmedNodes.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+                    "None of the provided hosts was allocated for chunk %s", request.getChunkUUID()));
+        }
+
+        String chunkHash = request.getChunkHash().toLowerCase(Locale.ROOT);
+        directUploadChunkRepository.markCommitted(chunk.chunkId(), chunkHash);
+        directUploadReplicaRepository.markCommitted(chunk.chunkId(),
+                confirmedNodes.stream().map(StorageNode::getId).toList());
+        allocation.committedChunks().put(chunk.chunkId(), new CommittedChunk(chunkHash, confirmedNodes));
+        log.info("Chunk {} of file {} committed on {} nodes",
+                chunk.chunkId(), allocation.fileId(), confirmedNodes.size());
+        boolean completed = allocation.isComplete();
+        if (completed) {
+            persistFile(allocation);
+            deleteAllocation(allocation.fileId());
+        }
+        return new ChunkCommitResponse(allocation.fileId().toString(), allocation.committedChunks().size(),
+                allocation.chunks().size(), completed);
+    }
+
+    /**
+     * Drops the allocations that were not completed in time. All allocated replicas are tombstoned, uncommitted
+     * chunks may be stored on some of their hosts as well.
+     */
+    @Scheduled(fixedDelayString = "${storage.upload.direct.cleanup-interval:60000}", timeUnit = TimeUnit.MILLISECONDS)
+    @Transactional
+    public void expireAllocations() {
+        Instant now = Instant.now();
+        for (DirectUpload upload : directUploadRepository.findByExpiresAtBeforeOrderByExpiresAt(now,
+                PageRequest.of(0, cleanupBatchSize))) {
+            UploadAllocation allocation = loadAllocation(upload);
+            log.info("Upload allocation of file {} expired with {}/{} chunks committed", allocation.fileId(),
+                    allocation.committedChunks().size(), allocation.chunks().size());
+            List<ChunkReplica> replicas = new ArrayList<>();
+            for (AllocatedChunk allocated : allocation.chunks().values()) {
+                for (StorageNode node : allocated.nodes()) {
+                    replicas.add(new ChunkReplica(allocated.chunkId(), allocated.chunkId(), allocation.fileId(),
+                            allocated.chunkIndex(), node.getId(), node.getHostAddr(), node.getPort()));
+                }
+            }
+            fileMetadataJdbcRepository.insertReplicaTombstones(replicas, now);
+            deleteAllocation(allocation.fileId());
+        }
+    }
+
+    /**
+     * Assembles the allocation with its chunks, their nodes and the committed chunks from the stored rows.
+     */
+    private UploadAllocation loadAllocation(DirectUpload upload) {
+        List<DirectUploadReplica> replicas = directUploadReplicaRepository.findByFileIdOrderByNodeOrder(upload.getId());
+        Map<UUID, StorageNode> nodes = storageNodeRepository.findAllById(replicas.stream()
+                        .map(DirectUploadReplica::getNodeId)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(StorageNode::getId, node -> node));
+        Map<UUID, List<DirectUploadReplica>> replicasByChunk = replicas.stream()
+                .filter(replica -> nodes.containsKey(replica.getNodeId()))
+                .collect(Collectors.groupingBy(DirectUploadReplica::getChunkId));
+
+        Map<UUID, AllocatedChunk> chunks = new LinkedHashMap<>();
+        Map<UUID, CommittedChunk> committedChunks = new ConcurrentHashMap<>();
+        for (DirectUploadChunk chunk : directUploadChunkRepository.findByFileIdOrderByChunkIndex(upload.getId())) {
+            List<DirectUploadReplica> chunkReplicas = replicasByChunk.getOrDefault(chunk.getId(), List.of());
+            chunks.put(chunk.getId(), new AllocatedChunk(chunk.getId(), chunk.getChunkIndex(), chunk.getChunkSize(),
+                    chunk.getHashAlgorithm(), chunkReplicas.stream()
+                    .map(replica -> nodes.get(replica.getNodeId()))
+                    .toList()));
+            if (chunk.getHash() != null) {
+                committedChunks.put(chunk.getId(), new CommittedChunk(chunk.getHash(), chunkReplicas.stream()
+                        .filter(DirectUploadReplica::getCommitted)
+                        .map(replica -> nodes.get(replica.getNodeId()))
+                        .toList()));
+            }
+        }
+        return new UploadAllocation(upload.getId(), upload.getFilename(), upload.getFileHash(), upload.getFileSize(),
+                upload.getHashAlgorithm(), upload.getExpiresAt(), chunks, committedChunks);
+    }
+
+    private void deleteAllocation(UUID fileId) {
+        directUploadReplicaRepository.deleteReplicasOfFile(fileId);
+        directUploadChunkRepository.deleteChunksOfFile(fileId);
+        directUploadRepository.deleteAllocation(fileId);
+    }
+
+    private void persistFile(UploadAllocation allocation) {
+        FileProperties fileProperties = FileProperties.builder()
+                .id(allocation.fileId())
+                .filename(allocation.filename())
+                .totalChunks(allocation.chunks().size())
+                .totalSize(allocation.fileSize())
+                .hash(allocation.fileHash())
+                .hashAlgorithm(allocation.hashAlgorithm())
+                // The hashes come from the client, the file is shared only after DirectUploadVerifier checked them
+                .hashVerified(false)
+                .replicationFactor(allocation.chunks().values().stream()
+                        .mapToInt(chunk -> chunk.nodes().size())
+                        .max()
+                        .orElse(0))
+                .build();
+        allocation.chunks().values().stream()
+                .sorted(Comparator.comparing(AllocatedChunk::chunkIndex))
+                .forEach(allocated -> {
+                    CommittedChunk committed = allocation.committedChunks().get(allocated.chunkId());
+                    ChunkProperties chunk = ChunkProperties.builder()
+                            .id(allocated.chunkId())
+                            .chunkIndex(allocated.chunkIndex())
+                            .chunkSize(allocated.chunkSize())
+                            .hash(committed.hash())
+                            .hashAlgorithm(allocated.hashAlgorithm())
+                            .build();
+                    committed.nodes().forEach(chunk::addStorageNode);
+                    fileProperties.addChunk(chunk);
+                });
+        fileMetadataWriter.insertFile(fileProperties);
+        log.info("File {} stored by direct upload with {} chunks", fileProperties.getId(),
+                fileProperties.getTotalChunks());
+    }
+
+    private ChunkAllocationResponse toAllocationResponse(AllocatedChunk chunk) {
+        return ChunkAllocationResponse.builder()
+                .chunkUUID(chunk.chunkId().toString())
+                .chunkIndex(chunk.chunkIndex())
+                .chunkSizeBytes((int) chunk.chunkSize())
+                .chunkHashAlgorithm(chunk.hashAlgorithm())
+                .hosts(chunk.nodes().stream()
+                        .map(node -> new HostResponse(node.getHostAddr(), node.getPort()))
+                        .toList())
+                .build();
+    }
+
+    private void validateAllocateRequest(FileAllocateRequest request) {
+        if (request.getFilename() == null || request.getFilename().isBlank()) {
+            log.error("Provided filename is null or empty.");
+            throw new IllegalArgumentException("Filename is null or empty.");
+        }
+        if (request.getFileHash() == null || request.getFileHash().isBlank()) {
+            log.error("Provided hash string is null or empty.");
+            throw new IllegalArgumentException("Hash is null or empty.");
+        }
+        if (request.getFileSizeBytes() == null || request.getFileSizeBytes() <= 0) {
+            log.error("Provided file size is invalid: {}", request.getFileSizeBytes());
+            throw new IllegalArgumentException("File size is invalid.");
+        }
+    }
+
+    private void validateCommitRequest(ChunkCommitRequest request) {
+        if (!isUUID(request.getFileUUID()) || !isUUID(request.getChunkUUID())) {
+            log.error("Provided file or chunk UUID is invalid: {}, {}", request.getFileUUID(), request.getChunkUUID());
+            throw new IllegalArgumentException("File or chunk UUID is invalid.");
+        }
+        if (request.getChunkHash() == null || request.getChunkHash().isBlank()) {
+            log.error("Provided chunk hash is null or empty.");
+            throw new IllegalArgumentException("Chunk hash is null or empty.");
+        }
+        if (request.getHosts() == null || request.getHosts().isEmpty()) {
+            log.error("No hosts provided for chunk {}", request.getChunkUUID());
+            throw new IllegalArgumentException("Hosts are empty.");
+        }
+    }
+
+    private boolean isUUID(String value) {
+        if (value == null) {
+            return false;
+        }
+        try {
+            UUID.fromString(value);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
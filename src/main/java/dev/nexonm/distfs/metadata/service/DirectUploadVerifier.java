@@ -0,0 +1,110 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.config.SchedulingConfig;
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.repository.ChunkPropertiesRepository;
+import dev.nexonm.distfs.metadata.repository.FileMetadataJdbcRepository;
+import dev.nexonm.distfs.metadata.repository.FilePropertiesRepository;
+import dev.nexonm.distfs.metadata.service.hash.Hasher;
+import dev.nexonm.distfs.metadata.service.model.StoredContent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the hashes of files stored by direct upload, which the client reported without the server seeing the
+ * content. Every chunk is read back from a node and hashed, and the chunks are fed in order into the file hash.
+ * Only a file whose chunk and file hashes all match is marked verified and may be shared with other uploads.
+ * A file with missing chunks or content not matching the file hash is marked rejected and not checked again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DirectUploadVerifier {
+
+    private final FilePropertiesRepository filePropertiesRepository;
+    private final ChunkPropertiesRepository chunkPropertiesRepository;
+    private final FileMetadataJdbcRepository fileMetadataJdbcRepository;
+    private final HashGenerationService hashGenerationService;
+    private final NodeHealthRegistry nodeHealthRegistry;
+    private final ChunkReplicator chunkReplicator;
+
+    @Value("${storage.upload.direct.verify-batch-size:10}")
+    private int batchSize;
+
+    @Value("${chunk.send.timeout.single:30}")
+    private long readTimeoutSeconds;
+
+    @Scheduled(fixedDelayString = "${storage.upload.direct.verify-interval:60000}", timeUnit = TimeUnit.MILLISECONDS,
+            scheduler = SchedulingConfig.BACKGROUND_SCHEDULER)
+    public void verifyFiles() {
+        try {
+            filePropertiesRepository.findUnverifiedFileIds(batchSize).forEach(this::verifyFile);
+        } catch (RuntimeException e) {
+            log.error("Direct upload verification failed: {}", e.getMessage());
+        }
+    }
+
+    private void verifyFile(UUID fileId) {
+        Optional<FileProperties> file = filePropertiesRepository.findByIdAndDeletedAtIsNull(fileId);
+        if (file.isEmpty()) {
+            return;
+        }
+        List<UUID> chunkIds = chunkPropertiesRepository.findByFileIdOrderByChunkIndexAsc(fileId).stream()
+                .map(ChunkProperties::getId)
+                .toList();
+        if (chunkIds.size() != file.get().getTotalChunks()) {
+            log.error("File {} stored by direct upload has {} chunks instead of {}", fileId, chunkIds.size(),
+                    file.get().getTotalChunks());
+            fileMetadataJdbcRepository.markHashRejected(fileId);
+            return;
+        }
+        Map<UUID, StoredContent> contents = chunkReplicator.loadContents(chunkIds);
+        if (contents.size() != chunkIds.size()) {
+            // The file was deleted since it was loaded
+            log.warn("Content of {} chunks of file {} is not available for verification",
+                    chunkIds.size() - contents.size(), fileId);
+            return;
+        }
+        Hasher fileHasher = hashGenerationService.getHashFunction(file.get().getHashAlgorithm()).newHasher();
+        List<StoredContent> chunks = contents.values().stream()
+                .sorted(Comparator.comparing(StoredContent::chunkIndex))
+                .toList();
+        for (StoredContent chunk : chunks) {
+            List<StorageNode> sources = chunk.nodes().stream()
+                    .filter(node -> nodeHealthRegistry.isNodeHealthy(node.getId()))
+                    .toList();
+            byte[] data;
+            try {
+                // The read checks the content against the chunk hash reported by the client
+                data = chunkReplicator.read(chunk, sources).block(Duration.ofSeconds(readTimeoutSeconds * 2));
+            } catch (RuntimeException e) {
+                log.warn("Chunk {} of file {} could not be verified: {}", chunk.storedChunkId(), fileId,
+                        e.getMessage());
+                return;
+            }
+            fileHasher.update(data, 0, data.length);
+        }
+        String hash = hashGenerationService.digestToHex(fileHasher);
+        if (!hash.equalsIgnoreCase(file.get().getHash())) {
+            log.error("File {} stored by direct upload has hash {} instead of the reported {}", fileId, hash,
+                    file.get().getHash());
+            fileMetadataJdbcRepository.markHashRejected(fileId);
+            return;
+        }
+        fileMetadataJdbcRepository.markHashVerified(fileId);
+        log.info("Hashes of file {} stored by direct upload verified", fileId);
+    }
+}
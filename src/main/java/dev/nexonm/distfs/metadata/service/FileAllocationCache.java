@@ -0,0 +1,155 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.dto.response.CacheStatsResponse;
+import dev.nexonm.distfs.metadata.dto.response.FileDownloadResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache of download manifests, the least recently used manifest is evicted first.
+ * Entries must be invalidated whenever the file is deleted or the replicas of its chunks change. Every invalidation
+ * gets a new generation, a manifest loaded before the last invalidation of its file is not cached.
+ */
+@Component
+@Slf4j
+public class FileAllocationCache {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Map<UUID, FileDownloadResponse> manifests;
+    // <file id, generation of its last invalidation>, the oldest entries are forgotten beyond maxEntries
+    private final Map<UUID, Long> invalidations;
+    private final AtomicLong generation = new AtomicLong();
+    // Manifests loaded before this generation are not cached, set by invalidateAll and by forgotten invalidations
+    private long staleBefore;
+
+    public FileAllocationCache(@Value("${download.cache.enabled:true}") boolean enabled,
+                               @Value("${download.cache.max-entries:10000}") int maxEntries) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.manifests = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, FileDownloadResponse> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.invalidations = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                if (size() > maxEntries) {
+                    staleBefore = Math.max(staleBefore, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Must be read before the manifest is loaded from the database and passed to {@link #put}.
+     * @return current generation of the cache
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * @param fileId file id
+     * @return cached manifest, empty on a miss or when the cache is disabled
+     */
+    public Optional<FileDownloadResponse> get(UUID fileId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        FileDownloadResponse manifest;
+        synchronized (manifests) {
+            manifest = manifests.get(fileId);
+        }
+        (manifest != null ? hits : misses).incrementAndGet();
+        return Optional.ofNullable(manifest);
+    }
+
+    /**
+     * Caches the manifest unless the file was invalidated while it was being loaded.
+     * @param fileId file id
+     * @param loadedAt generation read before the manifest was loaded
+     * @param manifest manifest of the file
+     */
+    public void put(UUID fileId, long loadedAt, FileDownloadResponse manifest) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (manifests) {
+            if (loadedAt < staleBefore || loadedAt < invalidations.getOrDefault(fileId, 0L)) {
+                return;
+            }
+            manifests.put(fileId, manifest);
+        }
+    }
+
+    /**
+     * Removes the manifest of the file. Inside a transaction it is removed again after the commit,
+     * so a manifest built from the old state in the meantime does not stay in the cache.
+     * @param fileId file id
+     */
+    public void invalidate(UUID fileId) {
+        if (!enabled) {
+            return;
+        }
+        remove(fileId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(fileId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes all manifests, for changes whose affected files are not known, e.g. a node leaving the cluster.
+     */
+    public void invalidateAll() {
+        synchronized (manifests) {
+            manifests.clear();
+            invalidations.clear();
+            staleBefore = generation.incrementAndGet();
+        }
+        log.info("Download manifest cache cleared");
+    }
+
+    public CacheStatsResponse getStats() {
+        int size;
+        synchronized (manifests) {
+            size = manifests.size();
+        }
+        return new CacheStatsResponse(enabled, size, maxEntries, hits.get(), misses.get(), evictions.get());
+    }
+
+    private void remove(UUID fileId) {
+        synchronized (manifests) {
+            manifests.remove(fileId);
+            // Re-inserted so the invalidation is the newest entry
+            invalidations.remove(fileId);
+            invalidations.put(fileId, generation.incrementAndGet());
+        }
+    }
+}
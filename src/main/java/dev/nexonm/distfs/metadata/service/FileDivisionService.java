@@ -3,18 +3,26 @@ package dev.nexonm.distfs.metadata.service;
 import dev.nexonm.distfs.metadata.entity.ChunkProperties;
 import dev.nexonm.distfs.metadata.entity.FileProperties;
 import dev.nexonm.distfs.metadata.exception.FileStorageException;
+import dev.nexonm.distfs.metadata.service.chunking.ChunkReader;
+import dev.nexonm.distfs.metadata.service.chunking.ChunkingMode;
+import dev.nexonm.distfs.metadata.service.chunking.ContentDefinedChunker;
+import dev.nexonm.distfs.metadata.service.chunking.FixedSizeChunkReader;
+import dev.nexonm.distfs.metadata.service.hash.HashingInputStream;
 import dev.nexonm.distfs.metadata.service.model.ChunkDivisionResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
@@ -23,31 +31,44 @@ public class FileDivisionService {
 
     private final ChunkSizeCalculator chunkSizeCalculator;
     private final HashGenerationService hashGenerationService;
+    private final ChunkHashingExecutor chunkHashingExecutor;
+    private final ContentDefinedChunker contentDefinedChunker;
 
-    public Map<Integer, ChunkDivisionResult> divideIntoChunks(FileProperties fileProperties, MultipartFile file) {
+    /**
+     * Divides the file into chunks in a single read pass. The whole-file hash is computed while the chunks
+     * are read and stored into {@link FileProperties#setHash(String)}, chunk hashes are computed in parallel
+     * on the {@link ChunkHashingExecutor} while the next chunks are read.
+     *
+     * @param fileProperties file the chunks belong to
+     * @param file           uploaded file
+     * @param chunkingMode   how chunk boundaries are chosen
+     * @return map of <chunk index, chunk division>
+     */
+    public Map<Integer, ChunkDivisionResult> divideIntoChunks(FileProperties fileProperties, MultipartFile file,
+                                                              ChunkingMode chunkingMode) {
         Map<Integer, ChunkDivisionResult> results = new HashMap<>();
+        Map<Integer, CompletableFuture<String>> chunkHashes = new HashMap<>();
 
-        int chunkSizeBytes = chunkSizeCalculator.calculateOptimalChunkSize(file.getSize());
+        String chunkHashAlgorithm = chunkHashAlgorithm();
+        fileProperties.setHashAlgorithm(fileHashAlgorithm());
 
-        try (InputStream inputStream = file.getInputStream()) {
-            byte[] buffer = new byte[chunkSizeBytes];
-            int bytesRead;
+        try (HashingInputStream inputStream = hashedInputStream(file)) {
+            ChunkReader chunkReader = newChunkReader(inputStream, file.getSize(), chunkingMode);
+            byte[] chunkContent;
             int chunkNumber = 1;
 
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                // Read data in as byte array
-                byte[] chunkContent = Arrays.copyOf(buffer, bytesRead);
-                //Generate hash
-                String chunkHash = hashGenerationService.generateChunkHash(chunkContent);
+            while ((chunkContent = chunkReader.nextChunk()).length > 0) {
                 // Create chunk properties
                 ChunkProperties chunkProperty =
                         ChunkProperties.builder()
                                 .id(UUID.randomUUID())
                                 .chunkIndex(chunkNumber)
                                 .chunkSize((long) chunkContent.length)
-                                .hash(chunkHash)
+                                .hashAlgorithm(chunkHashAlgorithm)
                                 .file(fileProperties)
                                 .build();
+                // Generate hash in background
+                chunkHashes.put(chunkNumber, chunkHashingExecutor.hashChunk(chunkContent));
                 // Add to list
                 results.put(chunkNumber, new ChunkDivisionResult(chunkProperty, chunkContent));
                 // Add chunk to FileProperties
@@ -56,8 +77,13 @@ public class FileDivisionService {
                 chunkNumber++;
             }
 
+            // Wait for the chunk hashes
+            chunkHashes.forEach((index, chunkHash) ->
+                    results.get(index).chunkProperties().setHash(awaitHash(chunkHash)));
+
             log.info("Generated {} chunks for {}", results.size(), fileProperties.getFilename());
             fileProperties.setTotalChunks(chunkNumber - 1);
+            fileProperties.setHash(hashGenerationService.digestToHex(inputStream.getHasher()));
             return results;
 
         } catch (IOException ex) {
@@ -65,4 +91,128 @@ public class FileDivisionService {
         }
     }
 
+    /**
+     * Lazily reads the file as a stream of chunks. A chunk is read from the multipart stream only when
+     * the subscriber requests it, so the number of chunks held in memory is bounded by the downstream demand
+     * plus at most {@code maxChunksAhead} chunks being hashed on the {@link ChunkHashingExecutor} or waiting
+     * for the downstream.
+     * Each emitted chunk is also added to the provided {@link FileProperties}, and once the stream completes
+     * the whole-file hash computed during the same pass is stored into {@link FileProperties#setHash(String)}.
+     *
+     * @param fileProperties file the chunks belong to
+     * @param file           uploaded file
+     * @param chunkingMode   how chunk boundaries are chosen
+     * @param maxChunksAhead maximum number of chunks read ahead of the downstream demand
+     * @return cold flux of chunks in index order
+     */
+    public Flux<ChunkDivisionResult> streamChunks(FileProperties fileProperties, MultipartFile file,
+                                                  ChunkingMode chunkingMode, int maxChunksAhead) {
+        String chunkHashAlgorithm = chunkHashAlgorithm();
+        fileProperties.setHashAlgorithm(fileHashAlgorithm());
+        return Flux.<ChunkDivisionResult, ChunkReadState>generate(
+                () -> {
+                    HashingInputStream inputStream = hashedInputStream(file);
+                    return new ChunkReadState(inputStream,
+                            newChunkReader(inputStream, file.getSize(), chunkingMode));
+                },
+                (state, sink) -> {
+                    try {
+                        byte[] chunkContent = state.chunkReader.nextChunk();
+                        if (chunkContent.length == 0) {
+                            log.info("Streamed {} chunks for {}", state.chunkNumber - 1,
+                                    fileProperties.getFilename());
+                            fileProperties.setHash(
+                                    hashGenerationService.digestToHex(state.inputStream.getHasher()));
+                            sink.complete();
+                            return state;
+                        }
+                        ChunkProperties chunkProperty =
+                                ChunkProperties.builder()
+                                        .id(UUID.randomUUID())
+                                        .chunkIndex(state.chunkNumber)
+                                        .chunkSize((long) chunkContent.length)
+                                        .hashAlgorithm(chunkHashAlgorithm)
+                                        .file(fileProperties)
+                                        .build();
+                        fileProperties.addChunk(chunkProperty);
+                        state.chunkNumber++;
+                        sink.next(new ChunkDivisionResult(chunkProperty, chunkContent));
+                    } catch (IOException ex) {
+                        sink.error(new FileStorageException("Failed to read chunk from file", ex));
+                    }
+                    return state;
+                },
+                ChunkReadState::close)
+                .flatMapSequential(chunk -> Mono.fromFuture(() -> chunkHashingExecutor.hashChunk(chunk.chunkData()))
+                        .map(chunkHash -> {
+                            chunk.chunkProperties().setHash(chunkHash);
+                            return chunk;
+                        }), Math.max(1, Math.min(chunkHashingExecutor.getParallelism(), maxChunksAhead)));
+    }
+
+    /**
+     * Upper bound of the number of chunks the file is divided into, known before the file is read.
+     * @param fileSize size of the file in bytes
+     * @param chunkingMode how chunk boundaries are chosen
+     * @return exact number for fixed chunks, maximum possible number for content-defined chunks
+     */
+    public int estimateMaxChunkCount(long fileSize, ChunkingMode chunkingMode) {
+        int chunkSizeBytes = chunkingMode == ChunkingMode.CONTENT_DEFINED
+                ? contentDefinedChunker.getMinChunkSize()
+                : chunkSizeCalculator.calculateOptimalChunkSize(fileSize);
+        return chunkSizeBytes == 0 ? 0 : (int) Math.ceil((double) fileSize / chunkSizeBytes);
+    }
+
+    private ChunkReader newChunkReader(InputStream inputStream, long fileSize, ChunkingMode chunkingMode) {
+        if (chunkingMode == ChunkingMode.CONTENT_DEFINED) {
+            return contentDefinedChunker.newReader(inputStream);
+        }
+        return new FixedSizeChunkReader(inputStream, chunkSizeCalculator.calculateOptimalChunkSize(fileSize));
+    }
+
+    private String fileHashAlgorithm() {
+        return hashGenerationService.getHashFunction(hashGenerationService.getFileHashAlgorithm()).getName();
+    }
+
+    private String chunkHashAlgorithm() {
+        return hashGenerationService.getHashFunction(hashGenerationService.getChunkHashAlgorithm()).getName();
+    }
+
+    private String awaitHash(CompletableFuture<String> chunkHash) {
+        try {
+            return chunkHash.join();
+        } catch (CompletionException ex) {
+            throw new FileStorageException("Failed to hash chunk", ex.getCause());
+        }
+    }
+
+    /**
+     * Opens the file stream that updates the whole-file digest on every read.
+     */
+    private HashingInputStream hashedInputStream(MultipartFile file) throws IOException {
+        return new HashingInputStream(file.getInputStream(), hashGenerationService.newFileHasher());
+    }
+
+    /**
+     * Mutable state of a chunk stream: the open input stream, its chunk reader and the index of the next chunk.
+     */
+    private static final class ChunkReadState {
+        private final HashingInputStream inputStream;
+        private final ChunkReader chunkReader;
+        private int chunkNumber = 1;
+
+        private ChunkReadState(HashingInputStream inputStream, ChunkReader chunkReader) {
+            this.inputStream = inputStream;
+            this.chunkReader = chunkReader;
+        }
+
+        private void close() {
+            try {
+                inputStream.close();
+            } catch (IOException ex) {
+                log.warn("Failed to close file stream: {}", ex.getMessage());
+            }
+        }
+    }
+
 }
@@ -4,17 +4,17 @@ import dev.nexonm.distfs.metadata.dto.request.FileDownloadRequest;
 import dev.nexonm.distfs.metadata.dto.response.ChunkAllocationResponse;
 import dev.nexonm.distfs.metadata.dto.response.FileDownloadResponse;
 import dev.nexonm.distfs.metadata.dto.response.HostResponse;
-import dev.nexonm.distfs.metadata.entity.ChunkProperties;
-import dev.nexonm.distfs.metadata.entity.FileProperties;
-import dev.nexonm.distfs.metadata.entity.StorageNode;
 import dev.nexonm.distfs.metadata.exception.FileNotFoundException;
 import dev.nexonm.distfs.metadata.repository.FilePropertiesRepository;
+import dev.nexonm.distfs.metadata.service.model.ManifestRow;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -23,35 +23,53 @@ import java.util.UUID;
 public class FileDownloadService {
 
     private final FilePropertiesRepository filePropertiesRepository;
+    private final FileAllocationCache fileAllocationCache;
 
 
     public FileDownloadResponse getFileAllocations(FileDownloadRequest request){
         String fileUUID = validateRequest(request);
-        FileProperties fileProperties = filePropertiesRepository.findById(UUID.fromString(fileUUID)).orElseThrow(
-                () -> new FileNotFoundException(String.format("The file with UUID=%s does not exist.", fileUUID))
-        );
+        UUID fileId = UUID.fromString(fileUUID);
+        Optional<FileDownloadResponse> cached = fileAllocationCache.get(fileId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long loadedAt = fileAllocationCache.generation();
+        List<ManifestRow> rows = filePropertiesRepository.findManifestRows(fileId);
+        if (rows.isEmpty()) {
+            throw new FileNotFoundException(String.format("The file with UUID=%s does not exist.", fileUUID));
+        }
         FileDownloadResponse response = FileDownloadResponse.builder()
                 .fileUUID(fileUUID)
-                .filename(fileProperties.getFilename())
-                .fileSizeBytes(fileProperties.getTotalSize())
-                .chunks(new LinkedList<>())
+                .filename(rows.getFirst().filename())
+                .fileSizeBytes(rows.getFirst().fileSize())
+                .chunks(new ArrayList<>())
                 .build();
-        for (ChunkProperties chunk : fileProperties.getChunks()){
-            ChunkAllocationResponse chunkAllocation = ChunkAllocationResponse.builder()
-                    .chunkUUID(chunk.getId().toString())
-                    .chunkIndex(chunk.getChunkIndex())
-                    .chunkSizeBytes(chunk.getChunkSize().intValue())
-                    .chunkHash(chunk.getHash())
-                    .hosts(new LinkedList<>())
-                    .build();
-            for(StorageNode storageNode : chunk.getStorageNodes()){
-                chunkAllocation.getHosts().add(
-                        new HostResponse(storageNode.getHostAddr(), storageNode.getPort())
-                );
+        // Rows are ordered by chunk index, every chunk is followed by its replicas
+        ChunkAllocationResponse chunkAllocation = null;
+        UUID chunkId = null;
+        for (ManifestRow row : rows) {
+            if (row.chunkId() == null) {
+                continue;
+            }
+            if (!row.chunkId().equals(chunkId)) {
+                chunkId = row.chunkId();
+                chunkAllocation = ChunkAllocationResponse.builder()
+                        .chunkUUID(row.storedChunkId().toString())
+                        .chunkIndex(row.chunkIndex())
+                        .chunkSizeBytes(row.chunkSize().intValue())
+                        .chunkHash(row.chunkHash())
+                        .chunkHashAlgorithm(row.chunkHashAlgorithm() != null
+                                ? row.chunkHashAlgorithm() : HashGenerationService.LEGACY_HASH_ALGORITHM)
+                        .hosts(new ArrayList<>())
+                        .build();
+                response.getChunks().add(chunkAllocation);
+            }
+            if (row.host() != null) {
+                chunkAllocation.getHosts().add(new HostResponse(row.host(), row.port()));
             }
-            response.getChunks().add(chunkAllocation);
         }
 
+        fileAllocationCache.put(fileId, loadedAt, response);
         return response;
     }
 
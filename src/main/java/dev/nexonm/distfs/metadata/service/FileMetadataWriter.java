@@ -0,0 +1,45 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.repository.FileMetadataJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Persists a new file with its chunks and their replicas in one transaction.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileMetadataWriter {
+
+    private final FileMetadataJdbcRepository fileMetadataJdbcRepository;
+
+    /**
+     * Inserts the file, its chunks and the storage nodes of every chunk.
+     * The entities are not attached to the persistence context.
+     * @param file new file with chunks and their storage nodes
+     */
+    @Transactional
+    public void insertFile(FileProperties file) {
+        long start = System.nanoTime();
+        fileMetadataJdbcRepository.insertFile(file);
+        fileMetadataJdbcRepository.insertChunks(file.getId(), file.getChunks());
+        int replicas = fileMetadataJdbcRepository.insertChunkNodeMappings(file.getChunks());
+        log.info("Persisted file {} with {} chunks and {} replicas in {} ms", file.getId(), file.getChunks().size(),
+                replicas, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Records a replica confirmed after its file was persisted.
+     * @param chunkId persisted chunk
+     * @param nodeId node that stored the chunk
+     */
+    public void insertReplica(UUID chunkId, UUID nodeId) {
+        fileMetadataJdbcRepository.insertChunkNodeMapping(chunkId, nodeId);
+    }
+}
@@ -2,27 +2,31 @@ package dev.nexonm.distfs.metadata.service;
 
 
 import dev.nexonm.distfs.metadata.dto.FileMapper;
+import dev.nexonm.distfs.metadata.dto.request.InstantUploadRequest;
 import dev.nexonm.distfs.metadata.dto.response.FileUploadResponse;
-import dev.nexonm.distfs.metadata.entity.ChunkProperties;
 import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
 import dev.nexonm.distfs.metadata.exception.ChunkWasNotSentToNodes;
 import dev.nexonm.distfs.metadata.exception.HashIsNotEqualException;
-import dev.nexonm.distfs.metadata.repository.ChunkPropertiesRepository;
-import dev.nexonm.distfs.metadata.repository.FilePropertiesRepository;
 import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import dev.nexonm.distfs.metadata.service.chunking.ChunkingMode;
 import dev.nexonm.distfs.metadata.service.model.ChunkDivisionResult;
+import dev.nexonm.distfs.metadata.service.model.ChunkSendOutcome;
 import dev.nexonm.distfs.metadata.service.model.ChunkSendResult;
 import dev.nexonm.distfs.metadata.service.model.DistributionResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -30,15 +34,32 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class FileStorageService {
     private final StorageNodeRepository storageNodeRepository;
-    private final ChunkPropertiesRepository chunkPropertiesRepository;
-    private final FilePropertiesRepository filePropertiesRepository;
     private final FileDivisionService fileDivisionService;
     private final ChunkDistributionService chunkDistributionService;
     private final ParallelChunkSender parallelChunkSender;
+    private final ParallelChunkDeleter parallelChunkDeleter;
+    private final InstantUploadService instantUploadService;
     private final HashGenerationService hashGenerationService;
+    private final FileMetadataWriter fileMetadataWriter;
+    private final FileAllocationCache fileAllocationCache;
 
+    @Value("${storage.upload.pipelined:false}")
+    private boolean pipelinedUpload;
 
-    public FileUploadResponse storeFileChunked(MultipartFile file, String fileHash) {
+    @Value("${storage.upload.max-chunks-in-flight:2}")
+    private int maxChunksInFlight;
+
+    @Value("${storage.chunk.mode:FIXED}")
+    private ChunkingMode defaultChunkingMode;
+
+    /**
+     * Stores the file chunked with the given mode.
+     * @param file uploaded file
+     * @param fileHash file hash from frontend
+     * @param chunkingMode how chunk boundaries are chosen, null means the configured {@code storage.chunk.mode}
+     * @return file data for the client
+     */
+    public FileUploadResponse storeFileChunked(MultipartFile file, String fileHash, ChunkingMode chunkingMode) {
         /** The flow of the file storage process is as follows:
          * 1. Get file
          * 2. Divide into chunks
@@ -50,56 +71,170 @@ public class FileStorageService {
          * 8. Return answer
          */
 
-        // Check that the hash is correct.
-        String calculatedHash = validateFileAndHash(file, fileHash);
+        validateUploadRequest(file, fileHash);
+        if (chunkingMode == null) {
+            chunkingMode = defaultChunkingMode;
+        }
 
         // 1. Got a file
         FileProperties fileProperties = FileProperties.builder()
                 .id(UUID.randomUUID())
                 .filename(StringUtils.cleanPath(file.getOriginalFilename()))
-                .hash(calculatedHash)
                 .totalSize(file.getSize())
                 .build();
-        // 2. Divide into chunks
-        Map<Integer, ChunkDivisionResult> chunks = fileDivisionService.divideIntoChunks(fileProperties, file);
-        // Add database persistence for file properties and chunks
-        filePropertiesRepository.save(fileProperties);
-        chunkPropertiesRepository.saveAll(fileProperties.getChunks());
+        Optional<FileProperties> storedFile = storeIfContentExists(file, fileHash, fileProperties.getFilename());
+        if (storedFile.isPresent()) {
+            return FileMapper.mapFiletoFileUploadResponse(file, storedFile.get().getTotalChunks(),
+                    storedFile.get().getId().toString(), 0);
+        }
+        if (pipelinedUpload) {
+            return storeFilePipelined(file, fileHash, fileProperties, chunkingMode);
+        }
+        // 2. Divide into chunks, the file hash is calculated in the same pass
+        Map<Integer, ChunkDivisionResult> chunks = fileDivisionService.divideIntoChunks(fileProperties, file, chunkingMode);
+        // Check that the hash is correct before anything is sent
+        verifyFileHash(fileProperties.getHash(), fileHash);
         // 3+4. Create distribution
+        List<StorageNode> nodes = storageNodeRepository.findAll();
         List<DistributionResult> distribution = new ArrayList<>(
-                chunkDistributionService.distributeChunksWithReplication(storageNodeRepository.findAll(), chunks.size())
+                chunkDistributionService.distributeChunksWithReplication(fileProperties.getId(), nodes, chunks.size(),
+                        file.getSize() / Math.max(1, chunks.size()))
         );
+        fileProperties.setReplicationFactor(ChunkDistributionService.replicationFactorOf(
+                ChunkDistributionService.groupByChunkIndex(distribution)));
         // 5. Send data to nodes
-        List<ChunkSendResult> sendResults = parallelChunkSender.sendAllChunks(chunks, distribution);
-        // persist chunk data with nodes
-        validateAndPersistChunksInDB(sendResults);
+        ChunkSendOutcome sendOutcome = parallelChunkSender.sendAllChunks(chunks, distribution, nodes);
+        // persist file and chunk data with nodes
+        try {
+            validateAndPersistChunksInDB(fileProperties, sendOutcome.acknowledged());
+        } catch (RuntimeException e) {
+            discardSentChunks(sendOutcome);
+            throw e;
+        }
+        recordPendingReplicas(fileProperties, sendOutcome.pending());
         // return file data to client
-        return FileMapper.mapFiletoFileUploadResponse(file, chunks.size(), fileProperties.getId().toString());
+        return FileMapper.mapFiletoFileUploadResponse(file, chunks.size(), fileProperties.getId().toString(),
+                sendOutcome.placementRetries());
+    }
+
+    /**
+     * Pipelined variant of the upload: chunks are read, hashed and sent one by one instead of dividing
+     * the whole file in memory first. Memory per upload is bounded by {@code maxChunksInFlight} chunks being sent
+     * plus as many chunks read ahead and hashed.
+     * The file hash is known only after the last chunk was read, so on a mismatch the already sent chunks
+     * are removed from the nodes and nothing is persisted.
+     * @param file uploaded file
+     * @param fileHash file hash from frontend
+     * @param fileProperties properties of the file without chunks
+     * @param chunkingMode how chunk boundaries are chosen
+     * @return file data for the client
+     */
+    private FileUploadResponse storeFilePipelined(MultipartFile file, String fileHash, FileProperties fileProperties,
+                                                  ChunkingMode chunkingMode) {
+        int expectedChunks = fileDivisionService.estimateMaxChunkCount(file.getSize(), chunkingMode);
+        // Distribution is computed up front for the maximum number of chunks known from the file size
+        List<StorageNode> nodes = storageNodeRepository.findAll();
+        Map<Integer, List<StorageNode>> placement = ChunkDistributionService.groupByChunkIndex(
+                chunkDistributionService.distributeChunksWithReplication(fileProperties.getId(), nodes, expectedChunks,
+                        file.getSize() / Math.max(1, expectedChunks)));
+        fileProperties.setReplicationFactor(ChunkDistributionService.replicationFactorOf(placement));
+        Flux<ChunkDivisionResult> chunks =
+                fileDivisionService.streamChunks(fileProperties, file, chunkingMode, maxChunksInFlight);
+        ChunkSendOutcome sendOutcome = parallelChunkSender.sendChunkStream(chunks, placement, nodes, maxChunksInFlight);
+        fileProperties.setTotalChunks(fileProperties.getChunks().size());
+        try {
+            verifyFileHash(fileProperties.getHash(), fileHash);
+            // Chunks are persisted only after they were sent
+            validateAndPersistChunksInDB(fileProperties, sendOutcome.acknowledged());
+        } catch (RuntimeException e) {
+            discardSentChunks(sendOutcome);
+            throw e;
+        }
+        recordPendingReplicas(fileProperties, sendOutcome.pending());
+        return FileMapper.mapFiletoFileUploadResponse(file, fileProperties.getTotalChunks(),
+                fileProperties.getId().toString(), sendOutcome.placementRetries());
+    }
+
+    /**
+     * Upload fast path: when the same content is already fully replicated the file only gets new metadata.
+     * The provided hash is verified before the stored content is shared.
+     * @param file uploaded file
+     * @param fileHash file hash from frontend
+     * @param filename name of the new file
+     * @return the new file, empty if the content has to be stored
+     */
+    private Optional<FileProperties> storeIfContentExists(MultipartFile file, String fileHash, String filename) {
+        if (!instantUploadService.precheck(new InstantUploadRequest(filename, file.getContentType(), fileHash,
+                file.getSize())).isExists()) {
+            return Optional.empty();
+        }
+        verifyFileHash(hashGenerationService.generateFileHash(file), fileHash);
+        return instantUploadService.storeIfContentExists(fileHash, file.getSize(), filename);
     }
 
-    private void validateAndPersistChunksInDB(List<ChunkSendResult> results) {
-        HashSet<ChunkProperties> chunkSet = new HashSet<>();
+    /**
+     * Records the replicas of every chunk and persists the file with its chunks.
+     * @param fileProperties uploaded file with chunks
+     * @param results results of the chunk sending
+     */
+    private void validateAndPersistChunksInDB(FileProperties fileProperties, List<ChunkSendResult> results) {
         results.forEach(result -> {
             if (result.result()) {
                 result.chunkProperties().addStorageNode(result.storageNode());
             }
-            chunkSet.add(result.chunkProperties());
         });
-        chunkSet.stream().forEach( chunk -> {
-            if (chunk.getStorageNodes().size()==0){
+        fileProperties.getChunks().forEach(chunk -> {
+            if (chunk.getStorageNodes().isEmpty()) {
                 throw new ChunkWasNotSentToNodes(String.format("Chunk ID: %s", chunk.getId()));
             }
         });
-        chunkPropertiesRepository.saveAll(chunkSet.stream().toList());
+        fileMetadataWriter.insertFile(fileProperties);
+    }
+
+    /**
+     * Removes the chunks of a rejected upload from the nodes, including the replicas still being sent.
+     * @param sendOutcome results of the chunk sending
+     */
+    private void discardSentChunks(ChunkSendOutcome sendOutcome) {
+        parallelChunkDeleter.deleteSentChunks(sendOutcome.acknowledged());
+        sendOutcome.pending()
+                .collectList()
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(parallelChunkDeleter::deleteSentChunks);
     }
 
     /**
-     * Checks if file and hash are correctly provided and no corruption occurred.
+     * Records the replicas confirmed after the upload completed with its write quorum.
+     * @param fileProperties persisted file
+     * @param pending replica sends still running
+     */
+    private void recordPendingReplicas(FileProperties fileProperties, Flux<ChunkSendResult> pending) {
+        pending.filter(ChunkSendResult::result)
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(result -> {
+                    try {
+                        fileMetadataWriter.insertReplica(result.chunkProperties().getId(),
+                                result.storageNode().getId());
+                        fileAllocationCache.invalidate(fileProperties.getId());
+                        log.info("Recorded replica of chunk {} on node {}:{} after the upload completed",
+                                result.chunkProperties().getId(), result.storageNode().getHostAddr(),
+                                result.storageNode().getPort());
+                    } catch (RuntimeException e) {
+                        // The file may have been deleted meanwhile, an unrecorded replica would never be collected
+                        log.warn("Failed to record replica of chunk {} on node {}:{}, removing it: {}",
+                                result.chunkProperties().getId(), result.storageNode().getHostAddr(),
+                                result.storageNode().getPort(), e.getMessage());
+                        parallelChunkDeleter.deleteSentChunks(List.of(result));
+                    }
+                });
+    }
+
+    /**
+     * Checks if file and hash are provided.
      * @param file file data
      * @param hash file hash from frontend
-     * @return hash of file as a string
      */
-    private String validateFileAndHash(MultipartFile file, String hash) {
+    private void validateUploadRequest(MultipartFile file, String hash) {
         if (file == null) {
             log.error("Provided file is null.");
             throw new IllegalArgumentException("File is null.");
@@ -108,14 +243,19 @@ public class FileStorageService {
             log.error("Provided hash string is null or empty.");
             throw new IllegalArgumentException("Hash is null or empty.");
         }
-        String calculatedHash = hashGenerationService.generateFileHash(file);
+    }
 
+    /**
+     * Checks that no corruption occurred, i.e. the hash calculated while reading the file equals the provided one.
+     * @param calculatedHash hash calculated while dividing the file
+     * @param hash file hash from frontend
+     */
+    private void verifyFileHash(String calculatedHash, String hash) {
         if (!calculatedHash.equalsIgnoreCase(hash)) {
             log.error("Hash Verification: FALSE. Provided hash \"{}\" doesn't equal to local test \"{}\"", hash, calculatedHash);
             throw new HashIsNotEqualException(String.format("Provided hash \"%s\" doesn't equal to local test \"%s\"", hash, calculatedHash));
         }
         log.info("Hash Verification: TRUE. Provided hash equals to local test \"{}\"", calculatedHash);
-        return calculatedHash;
     }
 
 
@@ -1,6 +1,10 @@
 package dev.nexonm.distfs.metadata.service;
 
 
+import dev.nexonm.distfs.metadata.service.hash.HashFunction;
+import dev.nexonm.distfs.metadata.service.hash.Hasher;
+import dev.nexonm.distfs.metadata.service.hash.MessageDigestHashFunction;
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,17 +14,45 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
-@Getter
 public class HashGenerationService {
 
+    /**
+     * Algorithm of the files and chunks stored before the algorithm was recorded with them.
+     */
+    public static final String LEGACY_HASH_ALGORITHM = "SHA-256";
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final List<HashFunction> hashFunctions;
+    private final Map<String, HashFunction> hashFunctionsByName = new ConcurrentHashMap<>();
+    private final Map<String, ThreadLocal<Hasher>> threadHashers = new ConcurrentHashMap<>();
+
+    @Getter
     @Value("${file.hash.algorithm:SHA-256}")
-    private String hashAlgorithm;
+    private String fileHashAlgorithm;
+
+    @Getter
+    @Value("${chunk.hash.algorithm:SHA-256}")
+    private String chunkHashAlgorithm;
+
+    /**
+     * Fails fast on a misconfigured algorithm name.
+     */
+    @PostConstruct
+    public void validateConfiguredAlgorithms() {
+        log.info("Using {} for files and {} for chunks",
+                getHashFunction(fileHashAlgorithm).getName(), getHashFunction(chunkHashAlgorithm).getName());
+    }
 
     /**
      * Generates a hash for the provided file using the configured algorithm
@@ -29,35 +61,87 @@ public class HashGenerationService {
      */
     public String generateFileHash(MultipartFile file) {
         try (InputStream is = file.getInputStream()) {
-            MessageDigest digest = MessageDigest.getInstance(hashAlgorithm);
+            Hasher hasher = newFileHasher();
             byte[] buffer = new byte[8192];
             int bytesRead;
 
             while ((bytesRead = is.read(buffer)) != -1) {
-                digest.update(buffer, 0, bytesRead);
+                hasher.update(buffer, 0, bytesRead);
             }
 
-            return bytesToHex(digest.digest());
-        } catch (NoSuchAlgorithmException | IOException e) {
+            return bytesToHex(hasher.digest());
+        } catch (IOException e) {
             log.error("Error generating hash: {}", e.getMessage());
             throw new RuntimeException("Failed to generate file hash", e);
         }
     }
 
     /**
-     * Generates a hash for a byte array (chunk) using the configured algorithm
+     * Generates a hash for a byte array (chunk) using the configured chunk algorithm
      * @param data The byte array to hash
      * @return The generated hash as a hex string
      */
     public String generateChunkHash(byte[] data) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance(hashAlgorithm);
-            digest.update(data);
-            return bytesToHex(digest.digest());
-        } catch (NoSuchAlgorithmException e) {
-            log.error("Error generating chunk hash: {}", e.getMessage());
-            throw new RuntimeException("Failed to generate chunk hash", e);
-        }
+        return generateHash(chunkHashAlgorithm, data);
+    }
+
+    /**
+     * Generates a hash for a byte array with the given algorithm, e.g. the one recorded with a stored chunk.
+     * The hasher is reused by the calling thread.
+     * @param algorithm algorithm name, null means {@link #LEGACY_HASH_ALGORITHM}
+     * @param data The byte array to hash
+     * @return The generated hash as a hex string
+     */
+    public String generateHash(String algorithm, byte[] data) {
+        String name = resolveAlgorithmName(algorithm);
+        Hasher hasher = threadHashers
+                .computeIfAbsent(name, key -> ThreadLocal.withInitial(() -> getHashFunction(key).newHasher()))
+                .get();
+        hasher.update(data, 0, data.length);
+        return bytesToHex(hasher.digest());
+    }
+
+    /**
+     * Creates a new hasher of the configured file algorithm, so a caller can hash data while reading it
+     * @return fresh hasher
+     */
+    public Hasher newFileHasher() {
+        return getHashFunction(fileHashAlgorithm).newHasher();
+    }
+
+    /**
+     * Finds the hash function by name. Registered {@link HashFunction} beans take precedence,
+     * otherwise the name is looked up as a {@link java.security.MessageDigest} algorithm.
+     * @param algorithm algorithm name, null means {@link #LEGACY_HASH_ALGORITHM}
+     * @return hash function
+     */
+    public HashFunction getHashFunction(String algorithm) {
+        return hashFunctionsByName.computeIfAbsent(resolveAlgorithmName(algorithm), name -> {
+            for (HashFunction function : hashFunctions) {
+                if (function.getName().equalsIgnoreCase(name)) {
+                    return function;
+                }
+            }
+            try {
+                return new MessageDigestHashFunction(name);
+            } catch (NoSuchAlgorithmException e) {
+                log.error("Unknown hash algorithm: {}", name);
+                throw new IllegalArgumentException("Unknown hash algorithm " + name, e);
+            }
+        });
+    }
+
+    /**
+     * Completes the hasher and returns the result
+     * @param hasher hasher that was fed with the data
+     * @return The generated hash as a hex string
+     */
+    public String digestToHex(Hasher hasher) {
+        return bytesToHex(hasher.digest());
+    }
+
+    private String resolveAlgorithmName(String algorithm) {
+        return algorithm == null ? LEGACY_HASH_ALGORITHM : algorithm.toUpperCase(Locale.ROOT);
     }
 
     /**
@@ -66,11 +150,12 @@ public class HashGenerationService {
      * @return The hex string representation
      */
     private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
+        byte[] hex = new byte[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0f];
         }
-        return sb.toString();
+        return new String(hex, StandardCharsets.ISO_8859_1);
     }
 
 }
@@ -0,0 +1,158 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.dto.request.InstantUploadRequest;
+import dev.nexonm.distfs.metadata.dto.response.FilePrecheckResponse;
+import dev.nexonm.distfs.metadata.dto.response.FileUploadResponse;
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.exception.FileNotFoundException;
+import dev.nexonm.distfs.metadata.repository.FilePropertiesRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Stores a file without receiving its content when a file with the same hash and size is already fully replicated.
+ * The new file gets its own chunk metadata that references the stored content, see {@link ChunkDeduplicationService}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InstantUploadService {
+
+    private final FilePropertiesRepository filePropertiesRepository;
+    private final HashGenerationService hashGenerationService;
+    private final NodeHealthRegistry nodeHealthRegistry;
+    private final FileMetadataWriter fileMetadataWriter;
+
+    @Value("${storage.replication.min:2}")
+    private int minReplicationFactor;
+
+    /**
+     * Checks whether the file can be uploaded without its content.
+     * @param request file hash and size
+     * @return whether a fully replicated copy exists
+     */
+    @Transactional(readOnly = true)
+    public FilePrecheckResponse precheck(InstantUploadRequest request) {
+        validateRequest(request);
+        return new FilePrecheckResponse(
+                findFullyReplicatedFile(request.getFileHash(), request.getFileSizeBytes()).isPresent());
+    }
+
+    /**
+     * Creates a new file sharing the chunks of a fully replicated file with the same content.
+     * @param request file name, hash and size
+     * @return file data for the client
+     * @throws FileNotFoundException if there is no such file, the client has to upload the content
+     */
+    @Transactional
+    public FileUploadResponse storeInstant(InstantUploadRequest request) {
+        validateRequest(request);
+        if (request.getFilename() == null || request.getFilename().isBlank()) {
+            log.error("Provided filename is null or empty.");
+            throw new IllegalArgumentException("Filename is null or empty.");
+        }
+        FileProperties source = findFullyReplicatedFile(request.getFileHash(), request.getFileSizeBytes())
+                .orElseThrow(() -> new FileNotFoundException(String.format(
+                        "There is no stored file with hash %s, the content must be uploaded", request.getFileHash())));
+        FileProperties fileProperties = linkToStoredFile(source, StringUtils.cleanPath(request.getFilename()));
+        return FileUploadResponse.builder()
+                .fileUUID(fileProperties.getId().toString())
+                .originalFileName(request.getFilename())
+                .fileType(request.getFileType())
+                .fileSizeBytes(fileProperties.getTotalSize())
+                .chunkNumber((long) fileProperties.getTotalChunks())
+                .placementRetries(0)
+                .build();
+    }
+
+    /**
+     * Upload fast path for a file whose content was already received and verified.
+     * @param fileHash verified hash of the file
+     * @param fileSize size of the file
+     * @param filename name of the new file
+     * @return the new file, empty if the content has to be stored
+     */
+    @Transactional
+    public Optional<FileProperties> storeIfContentExists(String fileHash, long fileSize, String filename) {
+        return findFullyReplicatedFile(fileHash, fileSize).map(source -> linkToStoredFile(source, filename));
+    }
+
+    private FileProperties linkToStoredFile(FileProperties source, String filename) {
+        FileProperties fileProperties = FileProperties.builder()
+                .id(UUID.randomUUID())
+                .filename(filename)
+                .totalChunks(source.getTotalChunks())
+                .totalSize(source.getTotalSize())
+                .hash(source.getHash())
+                .hashAlgorithm(hashAlgorithm(source))
+                .replicationFactor(source.getReplicationFactor())
+                .build();
+        for (ChunkProperties sourceChunk : source.getChunks()) {
+            ChunkProperties chunk = ChunkProperties.builder()
+                    .id(UUID.randomUUID())
+                    .chunkIndex(sourceChunk.getChunkIndex())
+                    .chunkSize(sourceChunk.getChunkSize())
+                    .hash(sourceChunk.getHash())
+                    .hashAlgorithm(sourceChunk.getHashAlgorithm())
+                    .contentChunkId(sourceChunk.getStoredChunkId())
+                    .contentFileId(sourceChunk.getStoredFileId())
+                    .build();
+            sourceChunk.getStorageNodes().forEach(chunk::addStorageNode);
+            fileProperties.addChunk(chunk);
+        }
+        fileMetadataWriter.insertFile(fileProperties);
+        log.info("File {} stored instantly with the content of file {}", fileProperties.getId(), source.getId());
+        return fileProperties;
+    }
+
+    private Optional<FileProperties> findFullyReplicatedFile(String fileHash, long fileSize) {
+        String algorithm = hashGenerationService.getHashFunction(hashGenerationService.getFileHashAlgorithm()).getName();
+        // A checksum can collide, such a file must not be handed out for another one
+        if (!hashGenerationService.getHashFunction(algorithm).isCryptographic()) {
+            return Optional.empty();
+        }
+        return filePropertiesRepository.findByContent(fileHash.toLowerCase(Locale.ROOT), fileSize, algorithm)
+                .stream()
+                .filter(this::isFullyReplicated)
+                .findFirst();
+    }
+
+    /**
+     * A file is fully replicated when all of its chunks exist and each is stored on enough healthy nodes.
+     */
+    private boolean isFullyReplicated(FileProperties file) {
+        if (file.getChunks().size() != file.getTotalChunks()) {
+            return false;
+        }
+        int requiredReplicas = Math.max(1, Math.min(minReplicationFactor, nodeHealthRegistry.getHealthyNodesCount()));
+        return file.getChunks().stream().allMatch(chunk -> chunk.getStorageNodes().stream()
+                .map(StorageNode::getId)
+                .filter(nodeHealthRegistry::isNodeHealthy)
+                .count() >= requiredReplicas);
+    }
+
+    private String hashAlgorithm(FileProperties file) {
+        return file.getHashAlgorithm() != null ? file.getHashAlgorithm() : HashGenerationService.LEGACY_HASH_ALGORITHM;
+    }
+
+    private void validateRequest(InstantUploadRequest request) {
+        if (request.getFileHash() == null || request.getFileHash().isBlank()) {
+            log.error("Provided hash string is null or empty.");
+            throw new IllegalArgumentException("Hash is null or empty.");
+        }
+        if (request.getFileSizeBytes() == null || request.getFileSizeBytes() < 0) {
+            log.error("Provided file size is invalid: {}", request.getFileSizeBytes());
+            throw new IllegalArgumentException("File size is invalid.");
+        }
+    }
+}
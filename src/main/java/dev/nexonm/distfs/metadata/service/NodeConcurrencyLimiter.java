@@ -0,0 +1,262 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.dto.response.NodeLimitResponse;
+import dev.nexonm.distfs.metadata.service.model.NodeLoad;
+import dev.nexonm.distfs.metadata.service.model.TransferType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits the requests in flight to every storage node across all uploads and deletes. The limit of a node
+ * follows AIMD: it grows by about one per round trip while the node answers as fast as usual and is cut when
+ * a request fails or the latency exceeds the node's usual latency by {@code chunk.limit.latency-tolerance}.
+ * Requests above the limit wait for a free slot.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NodeConcurrencyLimiter {
+
+    private static final double FAILURE_BACKOFF = 0.5;
+    private static final double SLOW_BACKOFF = 0.9;
+    // Upload latency is compared per this many bytes, so chunks and batches of any size are comparable
+    private static final double LATENCY_UNIT_BYTES = 1024 * 1024;
+    // Weight of the newest sample in the recent upload latency
+    private static final double RECENT_LATENCY_WEIGHT = 0.2;
+
+    private final Map<UUID, NodeLimit> nodeLimits = new ConcurrentHashMap<>();
+
+    @Value("${chunk.limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chunk.limit.initial:4}")
+    private int initialLimit;
+
+    @Value("${chunk.limit.min:1}")
+    private int minLimit;
+
+    @Value("${chunk.limit.max:32}")
+    private int maxLimit;
+
+    @Value("${chunk.limit.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    /**
+     * Runs the request once the node has a free slot. Every subscription takes its own slot, so a retried
+     * request waits again.
+     * @param nodeId uuid of the node the request goes to
+     * @param type kind of the request
+     * @param bytes payload size of the request
+     * @param request request to the node
+     * @return result of the request
+     */
+    public <T> Mono<T> limit(UUID nodeId, TransferType type, long bytes, Mono<T> request) {
+        if (!enabled) {
+            return request;
+        }
+        NodeLimit nodeLimit = nodeLimits.computeIfAbsent(nodeId, id -> new NodeLimit(initialLimit));
+        return Mono.usingWhen(acquire(nodeLimit, bytes),
+                permit -> request,
+                permit -> Mono.fromRunnable(() -> release(nodeLimit, permit, type, bytes, Outcome.SUCCESS)),
+                (permit, e) -> Mono.fromRunnable(() -> release(nodeLimit, permit, type, bytes, Outcome.FAILURE)),
+                permit -> Mono.fromRunnable(() -> release(nodeLimit, permit, type, bytes, Outcome.CANCELLED)));
+    }
+
+    /**
+     * Current limit of the node, the initial limit for a node without traffic yet.
+     * @param nodeId uuid of the node
+     * @return requests allowed in flight
+     */
+    public int getLimit(UUID nodeId) {
+        NodeLimit nodeLimit = nodeLimits.get(nodeId);
+        if (nodeLimit == null) {
+            return initialLimit;
+        }
+        synchronized (nodeLimit) {
+            return nodeLimit.allowed();
+        }
+    }
+
+    /**
+     * Load of the node as seen by the transfers of this server.
+     * @param nodeId uuid of the node
+     * @return bytes in flight and recent upload latency, zero for a node without traffic yet
+     */
+    public NodeLoad getLoad(UUID nodeId) {
+        NodeLimit nodeLimit = nodeLimits.get(nodeId);
+        if (nodeLimit == null) {
+            return new NodeLoad(0, 0);
+        }
+        synchronized (nodeLimit) {
+            return new NodeLoad(nodeLimit.inFlightBytes, nodeLimit.recentUploadLatencyNanos / 1_000_000.0);
+        }
+    }
+
+    public List<NodeLimitResponse> getStats() {
+        List<NodeLimitResponse> stats = new ArrayList<>();
+        nodeLimits.forEach((nodeId, nodeLimit) -> {
+            synchronized (nodeLimit) {
+                stats.add(new NodeLimitResponse(nodeId.toString(), nodeLimit.limit, nodeLimit.inFlight,
+                        nodeLimit.inFlightBytes, nodeLimit.waiters.size(), nodeLimit.throttled, nodeLimit.failures,
+                        nodeLimit.recentUploadLatencyNanos / 1_000_000.0,
+                        nodeLimit.baselineNanos[TransferType.UPLOAD.ordinal()] / 1_000_000.0,
+                        nodeLimit.baselineNanos[TransferType.DELETE.ordinal()] / 1_000_000.0));
+            }
+        });
+        return stats;
+    }
+
+    private Mono<Permit> acquire(NodeLimit nodeLimit, long bytes) {
+        return Mono.create(sink -> {
+            Permit permit = new Permit(bytes);
+            Waiter waiter = new Waiter(sink, permit);
+            boolean granted;
+            synchronized (nodeLimit) {
+                granted = nodeLimit.inFlight < nodeLimit.allowed();
+                if (granted) {
+                    grant(nodeLimit, permit);
+                } else {
+                    nodeLimit.waiters.add(waiter);
+                    nodeLimit.throttled++;
+                }
+            }
+            sink.onCancel(() -> {
+                boolean waiting;
+                synchronized (nodeLimit) {
+                    waiting = nodeLimit.waiters.remove(waiter);
+                }
+                // The slot may have been granted right before the cancel, nobody else would free it
+                if (!waiting) {
+                    release(nodeLimit, permit, null, 0, Outcome.CANCELLED);
+                }
+            });
+            if (granted) {
+                sink.success(permit);
+            }
+        });
+    }
+
+    private void release(NodeLimit nodeLimit, Permit permit, TransferType type, long bytes, Outcome outcome) {
+        if (!permit.released.compareAndSet(false, true)) {
+            return;
+        }
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (nodeLimit) {
+            nodeLimit.inFlight--;
+            nodeLimit.inFlightBytes -= permit.bytes;
+            if (outcome != Outcome.CANCELLED) {
+                adjustLimit(nodeLimit, permit, type, bytes, outcome);
+            }
+            while (!nodeLimit.waiters.isEmpty() && nodeLimit.inFlight < nodeLimit.allowed()) {
+                Waiter waiter = nodeLimit.waiters.poll();
+                grant(nodeLimit, waiter.permit());
+                granted.add(waiter);
+            }
+        }
+        granted.forEach(waiter -> waiter.sink().success(waiter.permit()));
+    }
+
+    private void grant(NodeLimit nodeLimit, Permit permit) {
+        nodeLimit.inFlight++;
+        nodeLimit.inFlightBytes += permit.bytes;
+        permit.grantedAtNanos = System.nanoTime();
+        permit.epoch = nodeLimit.epoch;
+    }
+
+    private void adjustLimit(NodeLimit nodeLimit, Permit permit, TransferType type, long bytes, Outcome outcome) {
+        // Requests that started before the last cut saw the old load, they must not cut the limit again
+        boolean canDecrease = permit.epoch == nodeLimit.epoch;
+        if (outcome == Outcome.FAILURE) {
+            nodeLimit.failures++;
+            if (canDecrease) {
+                decrease(nodeLimit, FAILURE_BACKOFF);
+            }
+            return;
+        }
+        long latency = (long) ((System.nanoTime() - permit.grantedAtNanos) / (1 + bytes / LATENCY_UNIT_BYTES));
+        int kind = type.ordinal();
+        long baseline = nodeLimit.baselineNanos[kind];
+        if (baseline == 0 || latency < baseline) {
+            nodeLimit.baselineNanos[kind] = latency;
+        } else {
+            // The baseline follows the fastest answers and drifts slowly towards the usual latency
+            nodeLimit.baselineNanos[kind] = baseline + (latency - baseline) / 100;
+        }
+        if (type == TransferType.UPLOAD) {
+            nodeLimit.recentUploadLatencyNanos = nodeLimit.recentUploadLatencyNanos == 0
+                    ? latency
+                    : nodeLimit.recentUploadLatencyNanos
+                            + (long) ((latency - nodeLimit.recentUploadLatencyNanos) * RECENT_LATENCY_WEIGHT);
+        }
+        if (baseline > 0 && latency > baseline * latencyTolerance) {
+            if (canDecrease) {
+                decrease(nodeLimit, SLOW_BACKOFF);
+            }
+        } else if (nodeLimit.inFlight + 1 >= nodeLimit.allowed()) {
+            // Grow only while the limit is actually used
+            nodeLimit.limit = Math.min(maxLimit, nodeLimit.limit + 1 / nodeLimit.limit);
+        }
+    }
+
+    private void decrease(NodeLimit nodeLimit, double backoff) {
+        nodeLimit.limit = Math.max(minLimit, nodeLimit.limit * backoff);
+        nodeLimit.epoch++;
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        FAILURE,
+        CANCELLED
+    }
+
+    private record Waiter(MonoSink<Permit> sink, Permit permit) {
+    }
+
+    private static class Permit {
+        private final long bytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long grantedAtNanos;
+        private volatile long epoch;
+
+        private Permit(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Limit state of one node, guarded by the instance lock.
+     */
+    private static class NodeLimit {
+        private double limit;
+        private int inFlight;
+        private long inFlightBytes;
+        private long recentUploadLatencyNanos;
+        private long throttled;
+        private long failures;
+        // Incremented by every cut of the limit
+        private long epoch;
+        private final long[] baselineNanos = new long[TransferType.values().length];
+        private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+        private NodeLimit(double limit) {
+            this.limit = limit;
+        }
+
+        private int allowed() {
+            return Math.max(1, (int) limit);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package dev.nexonm.distfs.metadata.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nexonm.distfs.metadata.dto.response.NodeHealthResponse;
 import dev.nexonm.distfs.metadata.entity.StorageNode;
 import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import dev.nexonm.distfs.metadata.service.model.NodeCapacity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,6 +14,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
 import java.util.List;
@@ -22,6 +27,8 @@ public class NodeHealthMonitor {
     private final StorageNodeRepository storageNodeRepository;
     private final NodeHealthRegistry nodeHealthRegistry;
     private final WebClient webClient;
+    private final StorageNodeService storageNodeService;
+    private final ObjectMapper objectMapper;
 
     @Value("${health-check.timeout:2s}")
     private Duration timeout;
@@ -72,10 +79,13 @@ public class NodeHealthMonitor {
         return webClient.get()
                 .uri(healthUrl)
                 .retrieve()
-                .toBodilessEntity()
+                .bodyToMono(String.class)
+                .defaultIfEmpty("")
                 .timeout(timeout) // suppose there is an error after {timeout} seconds
-                .map(response -> {
+                .publishOn(Schedulers.boundedElastic()) // the capacity is written to the database
+                .map(body -> {
                     updateNodeStatus(node, true);
+                    updateNodeCapacity(node, body);
                     return node;
                 })
                 .onErrorResume(e -> {
@@ -86,6 +96,26 @@ public class NodeHealthMonitor {
                 });
     }
 
+    /**
+     * Stores the disk usage the node reported in the health response. Nodes that answer without it keep
+     * the last known capacity.
+     */
+    private void updateNodeCapacity(StorageNode node, String body) {
+        if (body.isBlank()) {
+            return;
+        }
+        try {
+            NodeHealthResponse health = objectMapper.readValue(body, NodeHealthResponse.class);
+            NodeCapacity.of(health.getCapacityBytes(), health.getUsedBytes(), health.getChunkCount())
+                    .ifPresent(capacity -> storageNodeService.updateNodeCapacity(node.getId(), capacity));
+        } catch (JsonProcessingException e) {
+            log.debug("Health response of node {}:{} carries no capacity: {}",
+                    node.getHostAddr(), node.getPort(), e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Failed to store capacity of node {}:{}: {}", node.getHostAddr(), node.getPort(), e.getMessage());
+        }
+    }
+
     /**
      * Updates node status based on health check result
      */
@@ -1,18 +1,32 @@
 package dev.nexonm.distfs.metadata.service;
 
 import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import dev.nexonm.distfs.metadata.service.model.NodeCapacity;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class NodeHealthRegistry {
     private final ConcurrentHashMap<UUID, Boolean> nodeHealthCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, NodeCapacity> nodeCapacityCache = new ConcurrentHashMap<>();
+    private final Set<UUID> drainingNodes = ConcurrentHashMap.newKeySet();
+    // <node id, time the node stopped answering>, only for unhealthy nodes
+    private final ConcurrentHashMap<UUID, Instant> unhealthySince = new ConcurrentHashMap<>();
     private final StorageNodeRepository nodeRepository;
+    private final FileAllocationCache fileAllocationCache;
 
     /**
      * Check current state of the node from cache.
@@ -31,7 +45,99 @@ public class NodeHealthRegistry {
      * @param isHealthy current status of the node
      */
     public void updateNodeHealth(UUID nodeId, boolean isHealthy){
-        nodeHealthCache.put(nodeId, isHealthy);
+        Boolean wasHealthy = nodeHealthCache.put(nodeId, isHealthy);
+        if (wasHealthy != null && wasHealthy != isHealthy) {
+            // Replicas on the node may have been repaired elsewhere or removed meanwhile
+            fileAllocationCache.invalidateAll();
+        }
+        if (isHealthy) {
+            unhealthySince.remove(nodeId);
+        } else {
+            unhealthySince.putIfAbsent(nodeId, Instant.now());
+        }
+    }
+
+    /**
+     * Marks a node that failed a request as unhealthy right away. The next health probe clears the mark
+     * if the node answers again.
+     * @param nodeId uuid of the node
+     */
+    public void markNodeSuspect(UUID nodeId){
+        Boolean wasHealthy = nodeHealthCache.replace(nodeId, false);
+        if (wasHealthy != null) {
+            unhealthySince.putIfAbsent(nodeId, Instant.now());
+        }
+        if (Boolean.TRUE.equals(wasHealthy)) {
+            fileAllocationCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Get the last disk usage reported by the node.
+     * @param nodeId uuid of the node
+     * @return capacity of the node, empty if the node never reported it
+     */
+    public Optional<NodeCapacity> getNodeCapacity(UUID nodeId){
+        return Optional.ofNullable(nodeCapacityCache.get(nodeId));
+    }
+
+    /**
+     * Check whether the node reported a different disk usage than the cached one.
+     * @param nodeId uuid of the node
+     * @param capacity reported capacity
+     * @return true if the capacity differs from the cached one
+     */
+    public boolean isNodeCapacityChanged(UUID nodeId, NodeCapacity capacity){
+        return !capacity.equals(nodeCapacityCache.get(nodeId));
+    }
+
+    /**
+     * Updates the disk usage of the node. Inside a transaction the cache is updated only after the commit,
+     * so a usage that failed to be stored is written again on the next report.
+     * @param nodeId uuid of the node
+     * @param capacity reported capacity
+     */
+    public void updateNodeCapacity(UUID nodeId, NodeCapacity capacity){
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            nodeCapacityCache.put(nodeId, capacity);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                nodeCapacityCache.put(nodeId, capacity);
+            }
+        });
+    }
+
+    /**
+     * Check whether the node is being drained before decommission.
+     * @param nodeId uuid of the node
+     * @return true if the node gets no new chunks
+     */
+    public boolean isNodeDraining(UUID nodeId){
+        return drainingNodes.contains(nodeId);
+    }
+
+    /**
+     * Starts or stops draining of the node.
+     * @param nodeId uuid of the node
+     * @param draining true to drain the node
+     */
+    public void updateNodeDraining(UUID nodeId, boolean draining){
+        if (draining) {
+            drainingNodes.add(nodeId);
+        } else {
+            drainingNodes.remove(nodeId);
+        }
+    }
+
+    /**
+     * Get ids of the nodes being drained.
+     * @return ids of draining nodes
+     */
+    public Set<UUID> getDrainingNodeIds(){
+        return Set.copyOf(drainingNodes);
     }
 
     /**
@@ -39,7 +145,14 @@ public class NodeHealthRegistry {
      */
     @PostConstruct
     public void initializeCache(){
-        nodeRepository.findAll().forEach(node -> nodeHealthCache.put(node.getId(), true));
+        nodeRepository.findAll().forEach(node -> {
+            nodeHealthCache.put(node.getId(), true);
+            NodeCapacity.of(node.getCapacityBytes(), node.getUsedBytes(), node.getChunkCount())
+                    .ifPresent(capacity -> nodeCapacityCache.put(node.getId(), capacity));
+            if (node.isDraining()) {
+                drainingNodes.add(node.getId());
+            }
+        });
     }
 
     /**
@@ -49,4 +162,30 @@ public class NodeHealthRegistry {
     public int getHealthyNodesCount(){
         return (int) nodeHealthCache.values().stream().filter(Boolean::booleanValue).count();
     }
+
+    /**
+     * Get ids of the nodes that are healthy or became unhealthy only recently. Their replicas are still counted,
+     * a short outage should not make the chunks on the node be copied elsewhere.
+     * @param downTime how long a node may be unhealthy
+     * @return ids of the healthy nodes and the nodes unhealthy for less than the down-time
+     */
+    public Set<UUID> getAvailableNodeIds(Duration downTime){
+        Instant downSince = Instant.now().minus(downTime);
+        return nodeHealthCache.entrySet().stream()
+                .filter(entry -> entry.getValue() || unhealthySince.getOrDefault(entry.getKey(), Instant.MIN)
+                        .isAfter(downSince))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Get ids of the healthy nodes in the cache.
+     * @return ids of healthy nodes
+     */
+    public Set<UUID> getHealthyNodeIds(){
+        return nodeHealthCache.entrySet().stream()
+                .filter(Map.Entry::getValue)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
 }
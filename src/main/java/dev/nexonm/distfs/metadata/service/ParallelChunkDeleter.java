@@ -1,16 +1,21 @@
 package dev.nexonm.distfs.metadata.service;
 
 
+import dev.nexonm.distfs.metadata.dto.request.ChunkBatchDeleteRequest;
 import dev.nexonm.distfs.metadata.dto.request.ChunkDeleteRequest;
+import dev.nexonm.distfs.metadata.dto.response.ChunkBatchDeleteResponse;
 import dev.nexonm.distfs.metadata.entity.ChunkProperties;
 import dev.nexonm.distfs.metadata.entity.FileProperties;
-import dev.nexonm.distfs.metadata.entity.StorageNode;
 import dev.nexonm.distfs.metadata.exception.StorageNodeException;
 import dev.nexonm.distfs.metadata.service.model.ChunkDeleteResult;
+import dev.nexonm.distfs.metadata.service.model.ChunkReplica;
+import dev.nexonm.distfs.metadata.service.model.ChunkSendResult;
+import dev.nexonm.distfs.metadata.service.model.TransferType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -22,8 +27,14 @@ import reactor.util.retry.Retry;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
@@ -31,6 +42,7 @@ import java.util.Set;
 public class ParallelChunkDeleter {
 
     private final WebClient webClient;
+    private final NodeConcurrencyLimiter nodeConcurrencyLimiter;
 
     @Value("${chunk.delete.timeout.all:120}")
     private long deletionTimeoutSeconds;
@@ -44,6 +56,15 @@ public class ParallelChunkDeleter {
     @Value("${chunk.delete.concurrency:10}")
     private int concurrencyLimit;
 
+    @Value("${chunk.delete.batch.enabled:true}")
+    private boolean batchDeleteEnabled;
+
+    @Value("${chunk.delete.batch.size:100}")
+    private int batchSize;
+
+    // Nodes that answered a batch request as an unknown endpoint
+    private final Set<UUID> batchUnsupportedNodes = ConcurrentHashMap.newKeySet();
+
     /**
      * Sends delete requests to all storage nodes to delete chunks for a file
      *
@@ -51,42 +72,167 @@ public class ParallelChunkDeleter {
      * @return List of delete results for tracking operations
      */
     public List<ChunkDeleteResult> deleteAllChunks(FileProperties fileProperties) {
-        log.info("Starting parallel deletion of chunks for file UUID: {}", fileProperties.getId());
-
-        List<ChunkProperties> chunks = fileProperties.getChunks();
-        List<ChunkDeleteResult> results = new ArrayList<>();
-
-        // For each chunk, contact every storage node that has it
-        results = Flux.fromIterable(chunks)
-                .flatMap(chunk -> {
-                    Set<StorageNode> nodes = chunk.getStorageNodes();
-                    return Flux.fromIterable(nodes)
-                            .flatMap(node -> deleteChunkFromNodeWithRetry(node, chunk)
-                                    .map(success -> new ChunkDeleteResult(chunk, node, success)));
-                }, concurrencyLimit)
+        return deleteChunks(fileProperties, fileProperties.getChunks());
+    }
+
+    /**
+     * Sends delete requests to all storage nodes to delete the given chunks of a file
+     *
+     * @param fileProperties The file the chunks belong to
+     * @param chunks The chunks whose stored content should be deleted
+     * @return List of delete results for tracking operations
+     */
+    public List<ChunkDeleteResult> deleteChunks(FileProperties fileProperties, List<ChunkProperties> chunks) {
+        log.info("Starting parallel deletion of {} chunks for file UUID: {}", chunks.size(), fileProperties.getId());
+        return deleteReplicas(chunks.stream()
+                .flatMap(chunk -> chunk.getStorageNodes().stream().map(node -> ChunkReplica.of(chunk, node)))
+                .toList());
+    }
+
+    /**
+     * Removes chunks that were successfully sent during an upload that was rejected afterwards.
+     *
+     * @param sendResults results of the chunk sending
+     * @return List of delete results for tracking operations
+     */
+    public List<ChunkDeleteResult> deleteSentChunks(List<ChunkSendResult> sendResults) {
+        return deleteReplicas(sendResults.stream()
+                // Deduplicated chunks were not sent, their content belongs to other files
+                .filter(sent -> sent.result() && sent.chunkProperties().getContentChunkId() == null)
+                .map(sent -> ChunkReplica.of(sent.chunkProperties(), sent.storageNode()))
+                .toList());
+    }
+
+    /**
+     * Sends delete requests for the given replicas in parallel, one batch request per node.
+     * Nodes that do not support batches get one request per chunk.
+     *
+     * @param replicas The replicas to delete, each one from its node
+     * @return List of delete results for tracking operations
+     */
+    public List<ChunkDeleteResult> deleteReplicas(List<ChunkReplica> replicas) {
+        Map<UUID, List<ChunkReplica>> replicasByNode = replicas.stream()
+                .collect(Collectors.groupingBy(ChunkReplica::nodeId, LinkedHashMap::new, Collectors.toList()));
+        // Keep the number of parallel requests close to the limit when nodes fall back to single deletes
+        int perNodeConcurrency = Math.max(1, concurrencyLimit / Math.max(1, replicasByNode.size()));
+
+        List<ChunkDeleteResult> results = Flux.fromIterable(replicasByNode.values())
+                .flatMap(nodeReplicas -> deleteReplicasFromNode(nodeReplicas, perNodeConcurrency), concurrencyLimit)
                 .collectList()
                 .block(Duration.ofSeconds(deletionTimeoutSeconds));
 
         int successCount = (int) results.stream().filter(ChunkDeleteResult::success).count();
-        log.info("Completed chunk deletion for file {}. Success: {}/{}",
-                fileProperties.getId(), successCount, results.size());
-
+        log.info("Deleted {}/{} chunk replicas from {} nodes", successCount, results.size(), replicasByNode.size());
         return results;
     }
 
+    /**
+     * Deletes replicas stored on one node in batches of {@code chunk.delete.batch-size}.
+     *
+     * @param replicas The replicas of a single node
+     * @param concurrency Parallel single deletes when the node does not support batches
+     * @return delete result per replica
+     */
+    private Flux<ChunkDeleteResult> deleteReplicasFromNode(List<ChunkReplica> replicas, int concurrency) {
+        boolean batchSupported = !batchUnsupportedNodes.contains(replicas.getFirst().nodeId());
+        if (!batchDeleteEnabled || !batchSupported || replicas.size() == 1) {
+            return deleteReplicasOneByOne(replicas, concurrency);
+        }
+        List<List<ChunkReplica>> batches = new ArrayList<>();
+        for (int i = 0; i < replicas.size(); i += batchSize) {
+            batches.add(replicas.subList(i, Math.min(i + batchSize, replicas.size())));
+        }
+        return Flux.fromIterable(batches)
+                .concatMap(batch -> deleteBatchFromNodeWithRetry(batch)
+                        .onErrorResume(BatchDeleteUnsupportedException.class, e -> {
+                            ChunkReplica node = batch.getFirst();
+                            log.info("Node {}:{} does not support batch deletes, deleting chunks one by one",
+                                    node.host(), node.port());
+                            batchUnsupportedNodes.add(node.nodeId());
+                            return deleteReplicasOneByOne(batch, concurrency);
+                        }));
+    }
+
+    private Flux<ChunkDeleteResult> deleteReplicasOneByOne(List<ChunkReplica> replicas, int concurrency) {
+        return Flux.fromIterable(replicas)
+                .flatMap(replica -> deleteChunkFromNodeWithRetry(replica)
+                        .map(success -> new ChunkDeleteResult(replica, success)), concurrency);
+    }
+
+    /**
+     * Retry logic for deleting a batch of chunks from a node.
+     *
+     * @param batch The replicas of a single node
+     * @return delete result per replica, an error only if the node does not support batches
+     */
+    private Flux<ChunkDeleteResult> deleteBatchFromNodeWithRetry(List<ChunkReplica> batch) {
+        ChunkReplica node = batch.getFirst();
+        return Mono.defer(() -> deleteBatchFromNode(batch))
+                .retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(500)).jitter(0.5)
+                        .filter(e -> !(e instanceof BatchDeleteUnsupportedException))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .flatMapMany(deleted -> Flux.fromIterable(batch)
+                        .map(replica -> new ChunkDeleteResult(replica,
+                                deleted.getOrDefault(replica.storedChunkId().toString(), false))))
+                .onErrorResume(e -> !(e instanceof BatchDeleteUnsupportedException), e -> {
+                    log.warn("Failed to delete {} chunks from node {}:{} after {} attempts: {}",
+                            batch.size(), node.host(), node.port(), maxRetries, e.getMessage());
+                    return Flux.fromIterable(batch).map(replica -> new ChunkDeleteResult(replica, false));
+                });
+    }
+
+    /**
+     * Sends one delete request for several chunks to a storage node.
+     *
+     * @param batch The replicas of a single node
+     * @return map of <stored chunk id, whether the chunk is gone from the node>
+     */
+    private Mono<Map<String, Boolean>> deleteBatchFromNode(List<ChunkReplica> batch) {
+        ChunkReplica node = batch.getFirst();
+        String url = String.format("http://%s:%d/api/chunk/delete/batch", node.host(), node.port());
+        log.info("Sending batch delete request for {} chunks to {}:{}", batch.size(), node.host(), node.port());
+
+        ChunkBatchDeleteRequest deleteRequest = new ChunkBatchDeleteRequest(batch.stream()
+                .map(replica -> new ChunkDeleteRequest(
+                        replica.storedFileId().toString(),
+                        replica.storedChunkId().toString(),
+                        replica.chunkIndex()))
+                .toList());
+
+        return nodeConcurrencyLimiter.limit(node.nodeId(), TransferType.DELETE, 0, webClient.method(HttpMethod.DELETE)
+                        .uri(url)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(BodyInserters.fromValue(deleteRequest))
+                        .retrieve()
+                        .onStatus(status -> status.isSameCodeAs(HttpStatus.NOT_FOUND)
+                                        || status.isSameCodeAs(HttpStatus.METHOD_NOT_ALLOWED)
+                                        || status.isSameCodeAs(HttpStatus.NOT_IMPLEMENTED),
+                                response -> Mono.error(new BatchDeleteUnsupportedException()))
+                        .onStatus(HttpStatusCode::isError, response -> Mono.error(new StorageNodeException(
+                                "Error deleting chunks with status: " + response.statusCode())))
+                        .bodyToMono(ChunkBatchDeleteResponse.class)
+                        .timeout(Duration.ofSeconds(singleDeleteTimeoutSeconds)))
+                .map(response -> {
+                    Map<String, Boolean> deleted = new HashMap<>();
+                    if (response.getResults() != null) {
+                        response.getResults().forEach(result -> deleted.put(result.getChunkUUID(), result.isDeleted()));
+                    }
+                    return deleted;
+                });
+    }
+
     /**
      * Retry logic for deleting a chunk from a node.
      *
-     * @param node The storage node to contact
-     * @param chunk The chunk to delete
+     * @param replica The chunk replica to delete
      * @return Boolean indicating success or failure
      */
-    private Mono<Boolean> deleteChunkFromNodeWithRetry(StorageNode node, ChunkProperties chunk) {
-        return Mono.defer(() -> deleteChunkFromNode(node, chunk))
+    private Mono<Boolean> deleteChunkFromNodeWithRetry(ChunkReplica replica) {
+        return Mono.defer(() -> deleteChunkFromNode(replica))
                 .retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(500)).jitter(0.5))
                 .onErrorResume(e -> {
                     log.warn("Failed to delete chunk {} from node {}:{} after {} attempts: {}",
-                            chunk.getId(), node.getHostAddr(), node.getPort(), maxRetries, e.getMessage());
+                            replica.chunkId(), replica.host(), replica.port(), maxRetries, e.getMessage());
                     return Mono.just(false);
                 });
     }
@@ -94,48 +240,58 @@ public class ParallelChunkDeleter {
     /**
      * Sends a delete request for a single chunk to a specific storage node.
      *
-     * @param node The storage node to contact
-     * @param chunk The chunk to delete
+     * @param replica The chunk replica to delete
      * @return Boolean indicating success or failure
      */
-    private Mono<Boolean> deleteChunkFromNode(StorageNode node, ChunkProperties chunk) {
-        String url = String.format("http://%s:%d/api/chunk/delete", node.getHostAddr(), node.getPort());
-        log.info("Sending delete request for chunk {} to {}:{}", chunk.getId(), node.getHostAddr(), node.getPort());
+    private Mono<Boolean> deleteChunkFromNode(ChunkReplica replica) {
+        String url = String.format("http://%s:%d/api/chunk/delete", replica.host(), replica.port());
+        log.info("Sending delete request for chunk {} to {}:{}", replica.chunkId(), replica.host(), replica.port());
 
         try {
             ChunkDeleteRequest deleteRequest = new ChunkDeleteRequest(
-                    chunk.getFile().getId().toString(),
-                    chunk.getId().toString(),
-                    chunk.getChunkIndex()
+                    replica.storedFileId().toString(),
+                    replica.storedChunkId().toString(),
+                    replica.chunkIndex()
             );
 
-            return webClient.method(HttpMethod.DELETE)
+            Mono<String> request = webClient.method(HttpMethod.DELETE)
                     .uri(url)
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(BodyInserters.fromValue(deleteRequest))
                     .retrieve()
+                    // The chunk is already gone, e.g. its content was shared by several deleted files
+                    .onStatus(status -> status.isSameCodeAs(HttpStatus.NOT_FOUND), response -> Mono.empty())
                     .onStatus(HttpStatusCode::isError, response -> {
                         log.error("Failed to delete chunk {} from node {}:{}, Status: {}",
-                                chunk.getId(), node.getHostAddr(), node.getPort(), response.statusCode());
+                                replica.chunkId(), replica.host(), replica.port(), response.statusCode());
                         return Mono.error(
                                 new StorageNodeException("Error deleting chunk with status: " + response.statusCode()));
                     })
                     .bodyToMono(String.class)
-                    .timeout(Duration.ofSeconds(singleDeleteTimeoutSeconds))
+                    .defaultIfEmpty("")
+                    .timeout(Duration.ofSeconds(singleDeleteTimeoutSeconds));
+
+            return nodeConcurrencyLimiter.limit(replica.nodeId(), TransferType.DELETE, 0, request)
                     .map(response -> {
                         log.info("Successfully deleted chunk {} from node {}:{}",
-                                chunk.getId(), node.getHostAddr(), node.getPort());
+                                replica.chunkId(), replica.host(), replica.port());
                         return true;
                     })
                     .onErrorResume(e -> {
                         log.error("Error deleting chunk {} from node {}:{}: {}",
-                                chunk.getId(), node.getHostAddr(), node.getPort(), e.getMessage());
+                                replica.chunkId(), replica.host(), replica.port(), e.getMessage());
                         return Mono.just(false);
                     });
         } catch (Exception e) {
             log.error("Exception while attempting to delete chunk {} from node {}:{}: {}",
-                    chunk.getId(), node.getHostAddr(), node.getPort(), e.getMessage());
+                    replica.chunkId(), replica.host(), replica.port(), e.getMessage());
             return Mono.just(false);
         }
     }
+
+    /**
+     * The node has no batch delete endpoint.
+     */
+    private static class BatchDeleteUnsupportedException extends RuntimeException {
+    }
 }
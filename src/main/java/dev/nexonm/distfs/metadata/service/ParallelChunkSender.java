@@ -1,15 +1,22 @@
 package dev.nexonm.distfs.metadata.service;
 
+import dev.nexonm.distfs.metadata.dto.response.ChunkBatchUploadResponse;
+import dev.nexonm.distfs.metadata.dto.response.ChunkChainUploadResponse;
+import dev.nexonm.distfs.metadata.dto.response.HostResponse;
 import dev.nexonm.distfs.metadata.entity.ChunkProperties;
 import dev.nexonm.distfs.metadata.entity.StorageNode;
 import dev.nexonm.distfs.metadata.exception.StorageNodeException;
 import dev.nexonm.distfs.metadata.service.model.ChunkDivisionResult;
+import dev.nexonm.distfs.metadata.service.model.ChunkSendOutcome;
 import dev.nexonm.distfs.metadata.service.model.ChunkSendResult;
 import dev.nexonm.distfs.metadata.service.model.DistributionResult;
+import dev.nexonm.distfs.metadata.service.model.ReplicationMode;
+import dev.nexonm.distfs.metadata.service.model.TransferType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
@@ -18,11 +25,22 @@ import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 @Slf4j
@@ -30,6 +48,11 @@ import java.util.Map;
 public class ParallelChunkSender {
 
     private final WebClient webClient;
+    private final ChunkDeduplicationService deduplicationService;
+    private final ChunkDistributionService chunkDistributionService;
+    private final NodeHealthRegistry nodeHealthRegistry;
+    private final NodeConcurrencyLimiter nodeConcurrencyLimiter;
+    private final ParallelChunkDeleter parallelChunkDeleter;
 
     @Value("${chunk.send.timeout.all:120}")
     private long distributionTimeoutSeconds;
@@ -43,34 +66,482 @@ public class ParallelChunkSender {
     @Value("${chunk.send.concurrency:10}")
     private int concurrencyLimit;
 
+    @Value("${chunk.send.max-placement-retries:2}")
+    private int maxPlacementRetries;
+
+    @Value("${chunk.send.replication-mode:FAN_OUT}")
+    private ReplicationMode replicationMode;
+
+    @Value("${chunk.send.write-quorum:0}") // 0 means all replicas
+    private int writeQuorum;
+
+    @Value("${chunk.send.batch.enabled:false}")
+    private boolean batchUploadEnabled;
+
+    @Value("${chunk.send.batch.max-bytes:8388608}") // 8388608 bytes = 8MB
+    private long maxBatchBytes;
+
+    // Nodes that answered a batch request as an unknown endpoint
+    private final Set<UUID> batchUnsupportedNodes = ConcurrentHashMap.newKeySet();
+
+    // Nodes that answered a chain request as an unknown endpoint
+    private final Set<UUID> chainUnsupportedNodes = ConcurrentHashMap.newKeySet();
+
+    // Chunks with replica sends still running
+    private final Set<UUID> chunksInFlight = ConcurrentHashMap.newKeySet();
+
     /**
      * Parallel sending of all chunks to the destinations
      * @param chunkMap map of <chunk index, chunk division>
      * @param distribution list of distributions
+     * @param nodes nodes a failed replica can be moved to
      */
-    public List<ChunkSendResult> sendAllChunks(Map<Integer, ChunkDivisionResult> chunkMap,
-                              List<DistributionResult> distribution) {
+    public ChunkSendOutcome sendAllChunks(Map<Integer, ChunkDivisionResult> chunkMap,
+                                          List<DistributionResult> distribution, List<StorageNode> nodes) {
         log.info("Starting parallel sending of {} chunks to {} destinations", chunkMap.size(), distribution.size());
 
-        // Process all distribution entries in parallel
-        List<ChunkSendResult> results =  Flux.fromIterable(distribution)
-                .flatMap(dist -> {
-                    StorageNode node = dist.storageNode();
-                    int chunkIndex = dist.chunkIndex();
-                    ChunkDivisionResult chunk = chunkMap.get(chunkIndex);
+        Map<Integer, List<StorageNode>> placement = ChunkDistributionService.groupByChunkIndex(distribution);
+        SendContext context = new SendContext(nodes);
+        if (batchUploadEnabled && replicationMode == ReplicationMode.FAN_OUT) {
+            List<ChunkSendResult> results = sendAllChunksBatched(chunkMap, placement, context);
+            return ChunkSendOutcome.completed(results, context.placementRetries().get());
+        }
+        int maxReplicas = replicationMode == ReplicationMode.CHAIN
+                ? 1 : placement.values().stream().mapToInt(List::size).max().orElse(1);
+        // Keep the number of parallel requests close to the limit, every chunk is sent to all replicas at once
+        int chunkConcurrency = Math.max(1, concurrencyLimit / maxReplicas);
 
-                    return sendChunkToNodeWithRetry(node, chunk.chunkData(), chunk.chunkProperties())
-                            .map(success -> {
+        ChunkSendOutcome outcome = sendChunks(Flux.fromIterable(chunkMap.values()), placement, context,
+                chunkConcurrency);
+        log.info("Finished parallel sending, {} replicas re-placed", outcome.placementRetries());
+        return outcome;
+    }
 
-                                return new ChunkSendResult(chunk.chunkProperties(), node, success);
-                            });
-                }, concurrencyLimit) // Control parallelism
+    /**
+     * Sends the chunks grouped by node, several chunks for the same node travel in one request
+     * of at most {@code chunk.send.batch.max-bytes}. A chunk bigger than the limit is sent alone.
+     * @param chunkMap map of <chunk index, chunk division>
+     * @param placement map of <chunk index, nodes that should store the chunk>
+     * @param context placement state of the upload
+     */
+    private List<ChunkSendResult> sendAllChunksBatched(Map<Integer, ChunkDivisionResult> chunkMap,
+                                                       Map<Integer, List<StorageNode>> placement,
+                                                       SendContext context) {
+        List<ChunkSendResult> results = Flux.fromIterable(chunkMap.values())
+                .flatMap(chunk -> {
+                    List<StorageNode> nodes =
+                            placement.getOrDefault(chunk.chunkProperties().getChunkIndex(), List.of());
+                    return deduplicationService.findStoredReplicas(chunk.chunkProperties(), nodes.size())
+                            .map(storedNodes -> new PlannedChunk(chunk, nodes, storedNodes));
+                }, concurrencyLimit)
+                .collectList()
+                .flatMapMany(plannedChunks -> {
+                    List<ChunkSendResult> deduplicated = new ArrayList<>();
+                    Map<StorageNode, List<ChunkDivisionResult>> chunksByNode = new LinkedHashMap<>();
+                    for (PlannedChunk planned : plannedChunks) {
+                        if (!planned.storedNodes().isEmpty()) {
+                            ChunkProperties properties = planned.chunk().chunkProperties();
+                            planned.storedNodes().forEach(node ->
+                                    deduplicated.add(new ChunkSendResult(properties, node, true)));
+                        } else {
+                            context.planChunk(planned.chunk().chunkProperties().getChunkIndex(), planned.nodes());
+                            planned.nodes().forEach(node ->
+                                    chunksByNode.computeIfAbsent(node, key -> new ArrayList<>()).add(planned.chunk()));
+                        }
+                    }
+                    return Flux.concat(Flux.fromIterable(deduplicated),
+                            Flux.fromIterable(packBatches(chunksByNode))
+                                    .flatMap(batch -> sendBatch(batch, context), concurrencyLimit));
+                })
                 .collectList()
                 .block(Duration.ofSeconds(distributionTimeoutSeconds));
-        log.info("Finished parallel sending");
+        log.info("Finished batched sending");
         return results;
     }
 
+    private List<ChunkBatch> packBatches(Map<StorageNode, List<ChunkDivisionResult>> chunksByNode) {
+        List<ChunkBatch> batches = new ArrayList<>();
+        chunksByNode.forEach((node, chunks) -> {
+            List<ChunkDivisionResult> batch = new ArrayList<>();
+            long batchBytes = 0;
+            for (ChunkDivisionResult chunk : chunks) {
+                if (!batch.isEmpty() && batchBytes + chunk.chunkData().length > maxBatchBytes) {
+                    batches.add(new ChunkBatch(node, batch));
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+                batch.add(chunk);
+                batchBytes += chunk.chunkData().length;
+            }
+            if (!batch.isEmpty()) {
+                batches.add(new ChunkBatch(node, batch));
+            }
+        });
+        return batches;
+    }
+
+    /**
+     * Sends a batch in one request. A node without the batch endpoint, or a batch that failed after all retries,
+     * falls back to one request per chunk. Chunks the node did not store are moved to other nodes.
+     * @param batch chunks for one node
+     * @param context placement state of the upload
+     * @return send result per chunk
+     */
+    private Flux<ChunkSendResult> sendBatch(ChunkBatch batch, SendContext context) {
+        StorageNode node = batch.node();
+        if (batch.chunks().size() == 1 || batchUnsupportedNodes.contains(node.getId())) {
+            return sendBatchOneByOne(batch, context);
+        }
+        return Mono.defer(() -> sendBatchToNode(batch))
+                .retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(500)).jitter(0.5)
+                        .filter(e -> !(e instanceof BatchUploadUnsupportedException))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .flatMapMany(stored -> Flux.fromIterable(batch.chunks())
+                        .flatMap(chunk -> stored.getOrDefault(chunk.chunkProperties().getId().toString(), false)
+                                ? Mono.just(new ChunkSendResult(chunk.chunkProperties(), node, true))
+                                // The node answered, only the chunks it did not store are moved
+                                : placeElsewhere(chunk, node, context, 0, false)))
+                .onErrorResume(e -> {
+                    if (e instanceof BatchUploadUnsupportedException) {
+                        log.info("Node {}:{} does not support batch uploads, sending chunks one by one",
+                                node.getHostAddr(), node.getPort());
+                        batchUnsupportedNodes.add(node.getId());
+                    } else {
+                        log.warn("Failed to send batch of {} chunks to node {}:{} after {} attempts: {}",
+                                batch.chunks().size(), node.getHostAddr(), node.getPort(), maxRetries, e.getMessage());
+                        nodeHealthRegistry.markNodeSuspect(node.getId());
+                    }
+                    return sendBatchOneByOne(batch, context);
+                });
+    }
+
+    private Flux<ChunkSendResult> sendBatchOneByOne(ChunkBatch batch, SendContext context) {
+        return Flux.fromIterable(batch.chunks())
+                .flatMap(chunk -> sendChunkWithFailover(chunk, batch.node(), context, 0));
+    }
+
+    /**
+     * Sends several chunks to the destination node in one multipart request. Every chunk is a {@code file} part
+     * whose headers carry the chunk fields, the node acknowledges each chunk separately.
+     * @param batch chunks for one node
+     * @return map of <chunk id, whether the node stored the chunk>
+     */
+    private Mono<Map<String, Boolean>> sendBatchToNode(ChunkBatch batch) {
+        StorageNode node = batch.node();
+        String url = String.format("http://%s:%d/api/chunk/upload/batch", node.getHostAddr(), node.getPort());
+        log.info("Sending batch of {} chunks to {}:{}", batch.chunks().size(), node.getHostAddr(), node.getPort());
+
+        MultipartBodyBuilder bodyBuilder = new MultipartBodyBuilder();
+        long batchBytes = 0;
+        for (ChunkDivisionResult chunk : batch.chunks()) {
+            batchBytes += chunk.chunkData().length;
+            ChunkProperties properties = chunk.chunkProperties();
+            bodyBuilder.part("file", chunkResource(chunk.chunkData(), properties))
+                    .header("X-Chunk-Id", properties.getId().toString())
+                    .header("X-File-Id", properties.getFile().getId().toString())
+                    .header("X-Chunk-Index", properties.getChunkIndex().toString())
+                    .header("X-Chunk-Hash", properties.getHash())
+                    .header("X-Chunk-Hash-Algorithm", properties.getHashAlgorithm());
+        }
+
+        return nodeConcurrencyLimiter.limit(node.getId(), TransferType.UPLOAD, batchBytes, webClient.post()
+                        .uri(url)
+                        .contentType(MediaType.MULTIPART_FORM_DATA)
+                        .body(BodyInserters.fromMultipartData(bodyBuilder.build()))
+                        .retrieve()
+                        .onStatus(status -> status.isSameCodeAs(HttpStatus.NOT_FOUND)
+                                        || status.isSameCodeAs(HttpStatus.METHOD_NOT_ALLOWED)
+                                        || status.isSameCodeAs(HttpStatus.NOT_IMPLEMENTED),
+                                response -> Mono.error(new BatchUploadUnsupportedException()))
+                        .onStatus(HttpStatusCode::isError, response -> Mono.error(
+                                new StorageNodeException("Error sending chunks with status: " + response.statusCode())))
+                        .bodyToMono(ChunkBatchUploadResponse.class)
+                        .timeout(Duration.ofSeconds(sendTimeoutSeconds)))
+                .map(response -> {
+                    Map<String, Boolean> stored = new HashMap<>();
+                    if (response.getResults() != null) {
+                        response.getResults().forEach(result -> stored.put(result.getChunkUUID(), result.isStored()));
+                    }
+                    return stored;
+                });
+    }
+
+    /**
+     * Pipelined sending of a chunk stream. The stream is consumed on a blocking-capable scheduler and at most
+     * {@code maxChunksInFlight} chunks are requested from it at a time, so chunk N is sent to its replicas
+     * while chunk N+1 is still being read.
+     * @param chunks lazily produced chunks
+     * @param placement map of <chunk index, nodes that should store the chunk>
+     * @param nodes nodes a failed replica can be moved to
+     * @param maxChunksInFlight number of chunks read but not yet sent to all of their replicas
+     */
+    public ChunkSendOutcome sendChunkStream(Flux<ChunkDivisionResult> chunks,
+                                            Map<Integer, List<StorageNode>> placement,
+                                            List<StorageNode> nodes,
+                                            int maxChunksInFlight) {
+        log.info("Starting pipelined sending with at most {} chunks in flight", maxChunksInFlight);
+
+        ChunkSendOutcome outcome = sendChunks(chunks.subscribeOn(Schedulers.boundedElastic()), placement,
+                new SendContext(nodes), maxChunksInFlight);
+        log.info("Finished pipelined sending, {} replicas re-placed", outcome.placementRetries());
+        return outcome;
+    }
+
+    /**
+     * Sends the chunks and waits until every chunk reached the write quorum, or all of its replicas if
+     * no quorum is configured. Replica sends beyond the quorum keep running and are returned as pending.
+     * A chunk takes one of the {@code concurrency} slots until all of its replicas finished, so the sends
+     * running after the quorum count towards the chunks in flight. If the sending fails, every replica
+     * stored so far is removed from the nodes once the remaining sends finished.
+     * @param chunks chunks to send
+     * @param placement map of <chunk index, nodes that should store the chunk>
+     * @param context placement state of the upload
+     * @param concurrency number of chunks being sent at a time
+     */
+    private ChunkSendOutcome sendChunks(Flux<ChunkDivisionResult> chunks, Map<Integer, List<StorageNode>> placement,
+                                        SendContext context, int concurrency) {
+        QuorumTracker tracker = new QuorumTracker();
+        chunks.doOnComplete(tracker::sourceCompleted)
+                .flatMap(chunk -> {
+                    List<StorageNode> nodes =
+                            placement.getOrDefault(chunk.chunkProperties().getChunkIndex(), List.of());
+                    int quorum = writeQuorum <= 0 || writeQuorum >= nodes.size() ? Integer.MAX_VALUE : writeQuorum;
+                    AtomicInteger confirmed = new AtomicInteger();
+                    AtomicBoolean acknowledged = new AtomicBoolean();
+                    tracker.chunkStarted();
+                    UUID chunkId = chunk.chunkProperties().getId();
+                    chunksInFlight.add(chunkId);
+                    return sendChunkToReplicas(chunk, nodes, context)
+                            .doOnNext(result -> {
+                                boolean beforeQuorum = !acknowledged.get();
+                                tracker.add(result, beforeQuorum);
+                                if (beforeQuorum && result.result() && confirmed.incrementAndGet() >= quorum
+                                        && acknowledged.compareAndSet(false, true)) {
+                                    tracker.chunkAcknowledged();
+                                }
+                            })
+                            .doOnComplete(() -> {
+                                if (acknowledged.compareAndSet(false, true)) {
+                                    tracker.chunkAcknowledged();
+                                }
+                            })
+                            .doFinally(signal -> chunksInFlight.remove(chunkId));
+                }, concurrency)
+                .subscribe(result -> { }, tracker::failed, tracker::completed);
+        try {
+            tracker.quorumReached().block(Duration.ofSeconds(distributionTimeoutSeconds));
+        } catch (RuntimeException e) {
+            tracker.finished()
+                    .publishOn(Schedulers.boundedElastic())
+                    .then(Mono.fromCallable(() -> parallelChunkDeleter.deleteSentChunks(tracker.allResults())))
+                    .subscribe();
+            throw e;
+        }
+        return new ChunkSendOutcome(tracker.acknowledgedResults(), tracker.pending(),
+                context.placementRetries().get());
+    }
+
+    /**
+     * Sends one chunk to all of its replicas, in parallel or through a chain of the replicas.
+     * A chunk whose content is already stored is linked to the stored replicas instead.
+     * @param chunk chunk data and properties
+     * @param nodes replica destinations
+     * @param context placement state of the upload
+     * @return send result per replica
+     */
+    private Flux<ChunkSendResult> sendChunkToReplicas(ChunkDivisionResult chunk, List<StorageNode> nodes,
+                                                      SendContext context) {
+        return deduplicationService.findStoredReplicas(chunk.chunkProperties(), nodes.size())
+                .flatMapMany(storedNodes -> {
+                    if (!storedNodes.isEmpty()) {
+                        return Flux.fromIterable(storedNodes)
+                                .map(node -> new ChunkSendResult(chunk.chunkProperties(), node, true));
+                    }
+                    context.planChunk(chunk.chunkProperties().getChunkIndex(), nodes);
+                    if (replicationMode == ReplicationMode.CHAIN && nodes.size() > 1
+                            && !chainUnsupportedNodes.contains(nodes.getFirst().getId())) {
+                        return sendChunkThroughChain(chunk, nodes, context);
+                    }
+                    return sendChunkToAll(chunk, nodes, context);
+                });
+    }
+
+    private Flux<ChunkSendResult> sendChunkToAll(ChunkDivisionResult chunk, List<StorageNode> nodes,
+                                                 SendContext context) {
+        return Flux.fromIterable(nodes)
+                .flatMap(node -> sendChunkWithFailover(chunk, node, context, 0));
+    }
+
+    /**
+     * Sends a replica to its node. A node already marked unhealthy during the upload is skipped in favour of
+     * another node, a node that fails the send is marked suspect and the replica is moved.
+     * @param chunk chunk data and properties
+     * @param node planned replica destination
+     * @param context placement state of the upload
+     * @param attempt number of times the replica was already moved
+     * @return final send result of the replica
+     */
+    private Mono<ChunkSendResult> sendChunkWithFailover(ChunkDivisionResult chunk, StorageNode node,
+                                                        SendContext context, int attempt) {
+        ChunkProperties properties = chunk.chunkProperties();
+        if (!nodeHealthRegistry.isNodeHealthy(node.getId()) && attempt < maxPlacementRetries) {
+            Optional<StorageNode> replacement = reserveReplacementNode(context, properties.getChunkIndex());
+            if (replacement.isPresent()) {
+                context.placementRetries().incrementAndGet();
+                log.info("Node {}:{} is unhealthy, chunk {} is sent to {}:{} instead", node.getHostAddr(),
+                        node.getPort(), properties.getId(), replacement.get().getHostAddr(),
+                        replacement.get().getPort());
+                return sendChunkWithFailover(chunk, replacement.get(), context, attempt + 1);
+            }
+        }
+        return sendChunkToNodeWithRetry(node, chunk.chunkData(), properties)
+                .flatMap(success -> success
+                        ? Mono.just(new ChunkSendResult(properties, node, true))
+                        : placeElsewhere(chunk, node, context, attempt, true));
+    }
+
+    /**
+     * Sends the replica to another healthy node that does not hold the chunk yet. The node that did not store
+     * the replica is marked suspect only if its request failed, not if it answered and rejected just this chunk.
+     * @param chunk chunk data and properties
+     * @param failedNode node that did not store the replica
+     * @param context placement state of the upload
+     * @param attempt number of times the replica was already moved
+     * @param requestFailed true if the request to the node failed or timed out
+     * @return final send result of the replica, failed if no node is left or retries are exhausted
+     */
+    private Mono<ChunkSendResult> placeElsewhere(ChunkDivisionResult chunk, StorageNode failedNode,
+                                                 SendContext context, int attempt, boolean requestFailed) {
+        ChunkProperties properties = chunk.chunkProperties();
+        if (requestFailed) {
+            nodeHealthRegistry.markNodeSuspect(failedNode.getId());
+        }
+        Optional<StorageNode> replacement = attempt < maxPlacementRetries
+                ? reserveReplacementNode(context, properties.getChunkIndex())
+                : Optional.empty();
+        if (replacement.isEmpty()) {
+            log.warn("Chunk {} could not be re-placed after node {}:{} failed", properties.getId(),
+                    failedNode.getHostAddr(), failedNode.getPort());
+            return Mono.just(new ChunkSendResult(properties, failedNode, false));
+        }
+        context.placementRetries().incrementAndGet();
+        log.info("Re-placing chunk {} from node {}:{} on {}:{}", properties.getId(), failedNode.getHostAddr(),
+                failedNode.getPort(), replacement.get().getHostAddr(), replacement.get().getPort());
+        return sendChunkWithFailover(chunk, replacement.get(), context, attempt + 1);
+    }
+
+    private Optional<StorageNode> reserveReplacementNode(SendContext context, int chunkIndex) {
+        Set<UUID> chunkNodes = context.chunkNodes().computeIfAbsent(chunkIndex, key -> ConcurrentHashMap.newKeySet());
+        // Replicas of the same chunk may fail at the same time, each of them needs a different node
+        synchronized (chunkNodes) {
+            Optional<StorageNode> replacement =
+                    chunkDistributionService.selectReplacementNode(context.candidates(), chunkNodes);
+            replacement.ifPresent(node -> chunkNodes.add(node.getId()));
+            return replacement;
+        }
+    }
+
+    /**
+     * Sends the chunk once, to the head of the chain. Replicas the chain did not store are sent directly.
+     * @param chunk chunk data and properties
+     * @param nodes replica destinations in chain order
+     * @param context placement state of the upload
+     * @return send result per replica
+     */
+    private Flux<ChunkSendResult> sendChunkThroughChain(ChunkDivisionResult chunk, List<StorageNode> nodes,
+                                                        SendContext context) {
+        StorageNode head = nodes.getFirst();
+        return sendChunkToChain(chunk, nodes)
+                .onErrorResume(e -> {
+                    if (e instanceof ChainUploadUnsupportedException) {
+                        log.info("Node {}:{} does not support chain replication, sending replicas directly",
+                                head.getHostAddr(), head.getPort());
+                        chainUnsupportedNodes.add(head.getId());
+                    } else {
+                        log.warn("Chain replication of chunk {} from node {}:{} failed: {}",
+                                chunk.chunkProperties().getId(), head.getHostAddr(), head.getPort(), e.getMessage());
+                    }
+                    return Mono.just(List.of());
+                })
+                .flatMapMany(storedOn -> {
+                    List<StorageNode> stored = nodes.stream()
+                            .filter(node -> storedOn.stream().anyMatch(host ->
+                                    node.getHostAddr().equals(host.getHost()) && node.getPort().equals(host.getPort())))
+                            .toList();
+                    List<StorageNode> missing = nodes.stream().filter(node -> !stored.contains(node)).toList();
+                    if (!missing.isEmpty()) {
+                        log.info("Chain stored chunk {} on {}/{} nodes, sending to the rest directly",
+                                chunk.chunkProperties().getId(), stored.size(), nodes.size());
+                    }
+                    return Flux.concat(
+                            Flux.fromIterable(stored)
+                                    .map(node -> new ChunkSendResult(chunk.chunkProperties(), node, true)),
+                            sendChunkToAll(chunk, missing, context));
+                });
+    }
+
+    /**
+     * Sends a chunk to the first node together with the downstream nodes. Every node stores the chunk,
+     * forwards it to the next one and reports back the nodes that stored it.
+     * @param chunk chunk data and properties
+     * @param nodes replica destinations in chain order
+     * @return hosts that acknowledged the chunk
+     */
+    private Mono<List<HostResponse>> sendChunkToChain(ChunkDivisionResult chunk, List<StorageNode> nodes) {
+        StorageNode head = nodes.getFirst();
+        ChunkProperties properties = chunk.chunkProperties();
+        String url = String.format("http://%s:%d/api/chunk/upload/chain", head.getHostAddr(), head.getPort());
+        log.info("Sending chunk {} through a chain of {} nodes starting at {}:{}",
+                properties.getId(), nodes.size(), head.getHostAddr(), head.getPort());
+
+        MultipartBodyBuilder bodyBuilder = new MultipartBodyBuilder();
+        bodyBuilder.part("file", chunkResource(chunk.chunkData(), properties));
+        bodyBuilder.part("chunkId", properties.getId().toString());
+        bodyBuilder.part("fileId", properties.getFile().getId().toString());
+        bodyBuilder.part("chunkIndex", properties.getChunkIndex().toString());
+        bodyBuilder.part("hash", properties.getHash());
+        bodyBuilder.part("hashAlgorithm", properties.getHashAlgorithm());
+        bodyBuilder.part("downstream", nodes.subList(1, nodes.size()).stream()
+                .map(node -> new HostResponse(node.getHostAddr(), node.getPort()))
+                .toList(), MediaType.APPLICATION_JSON);
+
+        // Every link of the chain adds one transfer
+        long chainBytes = (long) chunk.chunkData().length * nodes.size();
+        return nodeConcurrencyLimiter.limit(head.getId(), TransferType.UPLOAD, chainBytes, webClient.post()
+                        .uri(url)
+                        .contentType(MediaType.MULTIPART_FORM_DATA)
+                        .body(BodyInserters.fromMultipartData(bodyBuilder.build()))
+                        .retrieve()
+                        .onStatus(status -> status.isSameCodeAs(HttpStatus.NOT_FOUND)
+                                        || status.isSameCodeAs(HttpStatus.METHOD_NOT_ALLOWED)
+                                        || status.isSameCodeAs(HttpStatus.NOT_IMPLEMENTED),
+                                response -> Mono.error(new ChainUploadUnsupportedException()))
+                        .onStatus(HttpStatusCode::isError, response -> Mono.error(
+                                new StorageNodeException("Error sending chunk with status: " + response.statusCode())))
+                        .bodyToMono(ChunkChainUploadResponse.class)
+                        .timeout(Duration.ofSeconds(sendTimeoutSeconds * nodes.size())))
+                .map(response -> response.getStoredOn() != null ? response.getStoredOn() : List.<HostResponse>of());
+    }
+
+    /**
+     * @param chunkId id of a chunk
+     * @return true while replicas of the chunk are still being sent by an upload
+     */
+    public boolean isChunkInFlight(UUID chunkId) {
+        return chunksInFlight.contains(chunkId);
+    }
+
+    /**
+     * Sends already stored content to one more node, e.g. to restore its replication.
+     * @param node where to send
+     * @param data content verified against the chunk hash
+     * @param chunk chunk properties under which the content is stored
+     * @return true if the node stored the chunk
+     */
+    public Mono<Boolean> sendStoredChunk(StorageNode node, byte[] data, ChunkProperties chunk) {
+        return sendChunkToNodeWithRetry(node, data, chunk);
+    }
+
     /**
      * Retry logic for sending a chunk.
      *
@@ -101,43 +572,155 @@ public class ParallelChunkSender {
         String url = String.format("http://%s:%d/api/chunk/upload", node.getHostAddr(), node.getPort());
         log.info("Sending chunk {} to {}:{}", chunk.getId(), node.getHostAddr(), node.getPort());
 
-        try {
-            ByteArrayResource resource = new ByteArrayResource(data) {
-                @Override
-                public String getFilename() {
-                    return chunk.getId().toString();
-                }
-            };
-
-            // Create multipart body builder and add all parts
-            MultipartBodyBuilder bodyBuilder = new MultipartBodyBuilder();
-            bodyBuilder.part("file", resource);
-            bodyBuilder.part("chunkId", chunk.getId().toString());
-            bodyBuilder.part("fileId", chunk.getFile().getId().toString());
-            bodyBuilder.part("chunkIndex", chunk.getChunkIndex().toString());
-            bodyBuilder.part("hash", chunk.getHash());
-
-            return webClient.post()
-                    .uri(url)
-                    .contentType(MediaType.MULTIPART_FORM_DATA)
-                    .body(BodyInserters.fromMultipartData(bodyBuilder.build()))
-                    .retrieve()
-                    .onStatus(HttpStatusCode::isError, response -> {
-                        log.error("Failed to send chunk {} to node {}:{}, Status: {}", chunk.getId(),
-                                node.getHostAddr(), node.getPort(), response.statusCode());
-                        return Mono.error(
-                                new StorageNodeException("Error sending chunk with status: " + response.statusCode()));
-                    })
-                    .bodyToMono(String.class)
-                    .map(response -> {
-                        log.info("Successfully sent chunk {} to node {}:{}", chunk.getId(), node.getHostAddr(),
-                                node.getPort());
-                        return true;
-                    })
-                    .onErrorResume(e -> Mono.just(false));
-        } catch (Exception e) {
-            return Mono.just(false);
+        // Create multipart body builder and add all parts
+        MultipartBodyBuilder bodyBuilder = new MultipartBodyBuilder();
+        bodyBuilder.part("file", chunkResource(data, chunk));
+        bodyBuilder.part("chunkId", chunk.getId().toString());
+        bodyBuilder.part("fileId", chunk.getFile().getId().toString());
+        bodyBuilder.part("chunkIndex", chunk.getChunkIndex().toString());
+        bodyBuilder.part("hash", chunk.getHash());
+        bodyBuilder.part("hashAlgorithm", chunk.getHashAlgorithm());
+
+        // Errors and timeouts are propagated, so they are retried and lower the concurrency limit of the node
+        return nodeConcurrencyLimiter.limit(node.getId(), TransferType.UPLOAD, data.length, webClient.post()
+                        .uri(url)
+                        .contentType(MediaType.MULTIPART_FORM_DATA)
+                        .body(BodyInserters.fromMultipartData(bodyBuilder.build()))
+                        .retrieve()
+                        .onStatus(HttpStatusCode::isError, response -> {
+                            log.error("Failed to send chunk {} to node {}:{}, Status: {}", chunk.getId(),
+                                    node.getHostAddr(), node.getPort(), response.statusCode());
+                            return Mono.error(new StorageNodeException(
+                                    "Error sending chunk with status: " + response.statusCode()));
+                        })
+                        .bodyToMono(String.class)
+                        .timeout(Duration.ofSeconds(sendTimeoutSeconds)))
+                .map(response -> {
+                    log.info("Successfully sent chunk {} to node {}:{}", chunk.getId(), node.getHostAddr(),
+                            node.getPort());
+                    return true;
+                });
+    }
+
+    private ByteArrayResource chunkResource(byte[] data, ChunkProperties chunk) {
+        return new ByteArrayResource(data) {
+            @Override
+            public String getFilename() {
+                return chunk.getId().toString();
+            }
+        };
+    }
+
+    /**
+     * Send results of one upload. A result is acknowledged if its chunk had not reached the write quorum yet,
+     * later results are pending. The quorum is reached once all chunks were read and acknowledged.
+     */
+    private static final class QuorumTracker {
+        private final List<ChunkSendResult> acknowledged = new ArrayList<>();
+        private final List<ChunkSendResult> all = new ArrayList<>();
+        private final Sinks.Many<ChunkSendResult> pending = Sinks.many().replay().all();
+        private final Sinks.Empty<Void> quorumReached = Sinks.empty();
+        private final Sinks.Empty<Void> finished = Sinks.empty();
+        private int startedChunks;
+        private int acknowledgedChunks;
+        private boolean sourceCompleted;
+
+        synchronized void chunkStarted() {
+            startedChunks++;
+        }
+
+        synchronized void chunkAcknowledged() {
+            acknowledgedChunks++;
+            checkQuorum();
+        }
+
+        synchronized void sourceCompleted() {
+            sourceCompleted = true;
+            checkQuorum();
+        }
+
+        synchronized void add(ChunkSendResult result, boolean beforeQuorum) {
+            all.add(result);
+            if (beforeQuorum) {
+                acknowledged.add(result);
+            } else {
+                pending.tryEmitNext(result);
+            }
+        }
+
+        synchronized void completed() {
+            pending.tryEmitComplete();
+            finished.tryEmitEmpty();
+            quorumReached.tryEmitEmpty();
+        }
+
+        synchronized void failed(Throwable error) {
+            pending.tryEmitComplete();
+            finished.tryEmitEmpty();
+            quorumReached.tryEmitError(error);
+        }
+
+        synchronized List<ChunkSendResult> acknowledgedResults() {
+            return List.copyOf(acknowledged);
+        }
+
+        synchronized List<ChunkSendResult> allResults() {
+            return List.copyOf(all);
+        }
+
+        Flux<ChunkSendResult> pending() {
+            return pending.asFlux();
+        }
+
+        Mono<Void> quorumReached() {
+            return quorumReached.asMono();
+        }
+
+        Mono<Void> finished() {
+            return finished.asMono();
+        }
+
+        private void checkQuorum() {
+            if (sourceCompleted && acknowledgedChunks == startedChunks) {
+                quorumReached.tryEmitEmpty();
+            }
         }
     }
-}
 
+    private record PlannedChunk(ChunkDivisionResult chunk, List<StorageNode> nodes, List<StorageNode> storedNodes) {
+    }
+
+    private record ChunkBatch(StorageNode node, List<ChunkDivisionResult> chunks) {
+    }
+
+    /**
+     * Placement state of one upload.
+     * @param candidates nodes a failed replica can be moved to
+     * @param chunkNodes map of <chunk index, nodes that hold or were tried for the chunk>
+     * @param placementRetries replicas moved to another node
+     */
+    private record SendContext(List<StorageNode> candidates, Map<Integer, Set<UUID>> chunkNodes,
+                               AtomicInteger placementRetries) {
+
+        SendContext(List<StorageNode> candidates) {
+            this(candidates, new ConcurrentHashMap<>(), new AtomicInteger());
+        }
+
+        void planChunk(int chunkIndex, List<StorageNode> nodes) {
+            Set<UUID> chunkNodes = this.chunkNodes.computeIfAbsent(chunkIndex, key -> ConcurrentHashMap.newKeySet());
+            nodes.forEach(node -> chunkNodes.add(node.getId()));
+        }
+    }
+
+    /**
+     * The node has no batch upload endpoint.
+     */
+    private static class BatchUploadUnsupportedException extends RuntimeException {
+    }
+
+    /**
+     * The node has no chain upload endpoint.
+     */
+    private static class ChainUploadUnsupportedException extends RuntimeException {
+    }
+}
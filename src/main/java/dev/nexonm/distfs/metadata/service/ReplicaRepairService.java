@@ -0,0 +1,258 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.config.SchedulingConfig;
+import dev.nexonm.distfs.metadata.dto.response.RepairStatsResponse;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.repository.ChunkPropertiesRepository;
+import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import dev.nexonm.distfs.metadata.service.model.ContentReplicas;
+import dev.nexonm.distfs.metadata.service.model.NodeCapacity;
+import dev.nexonm.distfs.metadata.service.model.ReplicationBacklog;
+import dev.nexonm.distfs.metadata.service.model.StoredContent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Restores the replication of chunks that lost replicas, e.g. because a node became unhealthy.
+ * Content needs as many replicas as the largest replication factor its files were written with. A replica counts
+ * as lost once its node is unhealthy for longer than {@code storage.repair.down-time} seconds, so short restarts
+ * do not trigger copies. Every run takes a batch of content with too few replicas, the fewest replicas first, and
+ * copies it from healthy nodes to healthy nodes that do not hold it yet. Copies share the {@link BandwidthBudget}
+ * with the other background transfers. Content without any healthy replica waits until one of its nodes recovers.
+ * When a node recovers after its content was repaired, the replicas above the target are removed again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReplicaRepairService {
+
+    private static final Duration REPAIR_RATE_WINDOW = Duration.ofMinutes(5);
+
+    private final ChunkPropertiesRepository chunkPropertiesRepository;
+    private final StorageNodeRepository storageNodeRepository;
+    private final NodeHealthRegistry nodeHealthRegistry;
+    private final ChunkDistributionService chunkDistributionService;
+    private final ChunkReplicator chunkReplicator;
+
+    private final AtomicLong repairedReplicas = new AtomicLong();
+    private final AtomicLong failedRepairs = new AtomicLong();
+    private final AtomicLong copiedBytes = new AtomicLong();
+    private final AtomicLong removedExcessReplicas = new AtomicLong();
+    // <run time, replicas created by the run> for the repair rate
+    private final Deque<Map.Entry<Instant, Integer>> recentRuns = new ArrayDeque<>();
+
+    @Value("${storage.repair.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.repair.batch-size:50}")
+    private int batchSize;
+
+    @Value("${storage.repair.concurrency:4}")
+    private int concurrency;
+
+    @Value("${storage.repair.timeout:600}")
+    private long runTimeoutSeconds;
+
+    @Value("${storage.repair.down-time:600}")
+    private long downTimeSeconds;
+
+    // Replicas of content whose files were stored before the replication factor was recorded
+    @Value("${storage.replication.min:2}")
+    private int defaultReplicas;
+
+    @Value("${storage.replication.max:5}")
+    private int maxReplicas;
+
+    @Scheduled(fixedDelayString = "${storage.repair.interval:30000}", timeUnit = TimeUnit.MILLISECONDS,
+            scheduler = SchedulingConfig.BACKGROUND_SCHEDULER)
+    public void repair() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            recordRun(repairBatch());
+            removeExcessReplicas();
+        } catch (RuntimeException e) {
+            log.error("Replica repair failed: {}", e.getMessage());
+        }
+    }
+
+    public RepairStatsResponse getStats() {
+        Set<UUID> availableNodes = nodeHealthRegistry.getAvailableNodeIds(Duration.ofSeconds(downTimeSeconds));
+        long underReplicated = 0;
+        long missing = 0;
+        long unavailable = 0;
+        if (!availableNodes.isEmpty()) {
+            ReplicationBacklog backlog =
+                    chunkPropertiesRepository.countReplicationBacklog(availableNodes, defaultReplicas, maxReplicas);
+            underReplicated = backlog.getUnderReplicated();
+            missing = backlog.getMissingReplicas();
+            unavailable = backlog.getUnavailable();
+        }
+        double rate = repairRate();
+        Double secondsToFullRedundancy = missing > 0 && rate > 0 ? missing / rate : null;
+        return new RepairStatsResponse(enabled, downTimeSeconds, underReplicated, missing, unavailable,
+                repairedReplicas.get(), failedRepairs.get(), copiedBytes.get(), removedExcessReplicas.get(), rate,
+                secondsToFullRedundancy);
+    }
+
+    /**
+     * @return number of replicas created
+     */
+    private int repairBatch() {
+        Set<UUID> healthyNodes = nodeHealthRegistry.getHealthyNodeIds();
+        Set<UUID> availableNodes = nodeHealthRegistry.getAvailableNodeIds(Duration.ofSeconds(downTimeSeconds));
+        if (healthyNodes.isEmpty()) {
+            return 0;
+        }
+        List<ContentReplicas> batch = chunkPropertiesRepository.findUnderReplicatedContent(availableNodes,
+                defaultReplicas, maxReplicas, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<UUID, StoredContent> contents =
+                chunkReplicator.loadContents(batch.stream().map(ContentReplicas::getStoredChunkId).toList());
+
+        List<Mono<Integer>> repairs = new ArrayList<>();
+        // The batch is ordered by the number of replicas, so the most endangered content is copied first
+        for (ContentReplicas underReplicated : batch) {
+            StoredContent content = contents.get(underReplicated.getStoredChunkId());
+            if (content == null || chunkReplicator.isBusy(content.storedChunkId())) {
+                continue;
+            }
+            List<StorageNode> sources = content.nodes().stream()
+                    .filter(node -> healthyNodes.contains(node.getId()))
+                    .toList();
+            long available = content.nodes().stream()
+                    .filter(node -> availableNodes.contains(node.getId()))
+                    .count();
+            if (sources.isEmpty()) {
+                continue;
+            }
+            List<StorageNode> targets =
+                    selectTargets(content, (int) (underReplicated.getTargetReplicas() - available));
+            if (targets.isEmpty()) {
+                continue;
+            }
+            repairs.add(chunkReplicator.copy(content, sources, targets)
+                    .map(stored -> {
+                        repairedReplicas.addAndGet(stored.size());
+                        failedRepairs.addAndGet(targets.size() - stored.size());
+                        copiedBytes.addAndGet(content.chunkSize() * (stored.size() + 1));
+                        return stored.size();
+                    })
+                    .onErrorResume(e -> {
+                        log.warn("Failed to repair chunk {}: {}", content.storedChunkId(), e.getMessage());
+                        failedRepairs.addAndGet(targets.size());
+                        return Mono.just(0);
+                    }));
+        }
+        Integer repaired = Flux.fromIterable(repairs)
+                .flatMapSequential(repair -> repair, concurrency)
+                .reduce(0, Integer::sum)
+                .block(Duration.ofSeconds(runTimeoutSeconds));
+        int created = repaired != null ? repaired : 0;
+        log.info("Replica repair created {} replicas for {} under-replicated chunks", created, repairs.size());
+        return created;
+    }
+
+    /**
+     * Picks healthy nodes with free space that do not hold the content yet.
+     */
+    private List<StorageNode> selectTargets(StoredContent content, int count) {
+        List<StorageNode> candidates = storageNodeRepository.findNodesNotContainingChunk(content.storedChunkId());
+        Set<UUID> excluded = new HashSet<>();
+        content.nodes().forEach(node -> excluded.add(node.getId()));
+        List<StorageNode> targets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Optional<StorageNode> target = chunkDistributionService.selectReplacementNode(candidates, excluded);
+            if (target.isEmpty()) {
+                break;
+            }
+            excluded.add(target.get().getId());
+            targets.add(target.get());
+        }
+        return targets;
+    }
+
+    /**
+     * Removes replicas on healthy nodes above the target of the content, from draining nodes first and then from
+     * the fullest nodes.
+     */
+    private void removeExcessReplicas() {
+        Set<UUID> healthyNodes = nodeHealthRegistry.getHealthyNodeIds();
+        if (healthyNodes.isEmpty()) {
+            return;
+        }
+        List<ContentReplicas> batch = chunkPropertiesRepository.findOverReplicatedContent(healthyNodes,
+                defaultReplicas, maxReplicas, batchSize);
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<UUID, StoredContent> contents =
+                chunkReplicator.loadContents(batch.stream().map(ContentReplicas::getStoredChunkId).toList());
+        Comparator<StorageNode> removalOrder = Comparator
+                .comparing((StorageNode node) -> !nodeHealthRegistry.isNodeDraining(node.getId()))
+                .thenComparing(node -> -nodeHealthRegistry.getNodeCapacity(node.getId())
+                        .map(NodeCapacity::usage)
+                        .orElse(0.0));
+        int removed = 0;
+        for (ContentReplicas overReplicated : batch) {
+            StoredContent content = contents.get(overReplicated.getStoredChunkId());
+            if (content == null || chunkReplicator.isBusy(content.storedChunkId())) {
+                continue;
+            }
+            List<StorageNode> holders = content.nodes().stream()
+                    .filter(node -> healthyNodes.contains(node.getId()))
+                    .sorted(removalOrder)
+                    .toList();
+            long excess = holders.size() - overReplicated.getTargetReplicas();
+            for (StorageNode node : holders.subList(0, (int) Math.max(0, excess))) {
+                chunkReplicator.removeReplica(content, node);
+                removed++;
+            }
+        }
+        removedExcessReplicas.addAndGet(removed);
+        log.info("Replica repair removed {} excess replicas of {} over-replicated chunks", removed, batch.size());
+    }
+
+    private synchronized void recordRun(int created) {
+        Instant now = Instant.now();
+        recentRuns.addLast(Map.entry(now, created));
+        while (recentRuns.getFirst().getKey().isBefore(now.minus(REPAIR_RATE_WINDOW))) {
+            recentRuns.removeFirst();
+        }
+    }
+
+    /**
+     * @return replicas created per second over the last minutes
+     */
+    private synchronized double repairRate() {
+        Instant since = Instant.now().minus(REPAIR_RATE_WINDOW);
+        long created = recentRuns.stream()
+                .filter(run -> run.getKey().isAfter(since))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        return (double) created / REPAIR_RATE_WINDOW.toSeconds();
+    }
+}
@@ -1,9 +1,15 @@
 package dev.nexonm.distfs.metadata.service;
 
 import dev.nexonm.distfs.metadata.dto.request.AddStorageNodeRequest;
+import dev.nexonm.distfs.metadata.dto.request.DrainStorageNodeRequest;
+import dev.nexonm.distfs.metadata.dto.response.DrainStatusResponse;
 import dev.nexonm.distfs.metadata.entity.StorageNode;
 import dev.nexonm.distfs.metadata.exception.StorageNodeAlreadyRegisteredException;
+import dev.nexonm.distfs.metadata.exception.StorageNodeNotFoundException;
+import dev.nexonm.distfs.metadata.repository.ChunkPropertiesRepository;
 import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import dev.nexonm.distfs.metadata.service.model.NodeCapacity;
+import dev.nexonm.distfs.metadata.service.model.NodeUsage;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +26,7 @@ public class StorageNodeService {
 
     private final StorageNodeRepository repository;
     private final NodeHealthRegistry nodeHealthRegistry;
+    private final ChunkPropertiesRepository chunkPropertiesRepository;
 
 
     @Transactional
@@ -28,6 +35,8 @@ public class StorageNodeService {
             // Check if server was unhealthy and recovered
             StorageNode node = repository.findByHostAddrAndPort(request.getHost(), request.getPort()).orElseThrow();
             if (!nodeHealthRegistry.isNodeHealthy(node.getId())) {
+                NodeCapacity.of(request.getCapacityBytes(), request.getUsedBytes(), request.getChunkCount())
+                        .ifPresent(capacity -> updateNodeCapacity(node.getId(), capacity));
                 nodeHealthRegistry.updateNodeHealth(node.getId(), true); // Recover
                 return "Storage node was recovered.";
             }
@@ -41,12 +50,75 @@ public class StorageNodeService {
                 .id(UUID.randomUUID())
                 .hostAddr(request.getHost())
                 .port(request.getPort())
+                .capacityBytes(request.getCapacityBytes())
+                .usedBytes(request.getUsedBytes())
+                .chunkCount(request.getChunkCount())
                 .build();
 
         repository.save(node);
         // Save newly registered node
         nodeHealthRegistry.updateNodeHealth(node.getId(), true);
+        NodeCapacity.of(node.getCapacityBytes(), node.getUsedBytes(), node.getChunkCount())
+                .ifPresent(capacity -> nodeHealthRegistry.updateNodeCapacity(node.getId(), capacity));
 
         return "Storage node was saved.";
     }
+
+    /**
+     * Stores the disk usage reported by the node. The database is written only when the usage changed.
+     * @param nodeId uuid of the node
+     * @param capacity reported capacity
+     */
+    @Transactional
+    public void updateNodeCapacity(UUID nodeId, NodeCapacity capacity) {
+        if (nodeHealthRegistry.isNodeCapacityChanged(nodeId, capacity)) {
+            repository.updateCapacity(nodeId, capacity.capacityBytes(), capacity.usedBytes(), capacity.chunkCount());
+            nodeHealthRegistry.updateNodeCapacity(nodeId, capacity);
+        }
+    }
+
+    /**
+     * Starts or stops draining of the node. A draining node gets no new chunks and the rebalancer moves its chunks
+     * to the other nodes, so it can be shut down once the drain completes.
+     * @param request address of the node
+     * @param draining true to start draining, false to cancel it
+     * @return message for the client
+     */
+    @Transactional
+    public String updateNodeDraining(DrainStorageNodeRequest request, boolean draining) {
+        StorageNode node = findNode(request.getHost(), request.getPort());
+        repository.updateDraining(node.getId(), draining);
+        nodeHealthRegistry.updateNodeDraining(node.getId(), draining);
+        log.info("Draining of node {}:{} {}", node.getHostAddr(), node.getPort(), draining ? "started" : "cancelled");
+        return draining ? "Storage node is draining." : "Storage node draining was cancelled.";
+    }
+
+    /**
+     * @param host host of the node
+     * @param port port of the node
+     * @return chunks of files that are not deleted still stored on the node
+     */
+    @Transactional(readOnly = true)
+    public DrainStatusResponse getDrainStatus(String host, int port) {
+        StorageNode node = findNode(host, port);
+        long remainingChunks = 0;
+        long remainingBytes = 0;
+        for (NodeUsage usage : chunkPropertiesRepository.findNodeUsage()) {
+            if (usage.getNodeId().equals(node.getId())) {
+                remainingChunks = usage.getChunkCount();
+                remainingBytes = usage.getStoredBytes();
+            }
+        }
+        boolean draining = nodeHealthRegistry.isNodeDraining(node.getId());
+        return new DrainStatusResponse(node.getId().toString(), node.getHostAddr(), node.getPort(), draining,
+                remainingChunks, remainingBytes, draining && remainingChunks == 0);
+    }
+
+    private StorageNode findNode(String host, int port) {
+        return repository.findByHostAddrAndPort(host, port).orElseThrow(() -> {
+            StorageNodeNotFoundException e = new StorageNodeNotFoundException(host, port);
+            log.error(e.getMessage());
+            return e;
+        });
+    }
 }
@@ -0,0 +1,16 @@
+package dev.nexonm.distfs.metadata.service.chunking;
+
+import java.io.IOException;
+
+/**
+ * Splits a stream into consecutive chunks.
+ */
+public interface ChunkReader {
+
+    /**
+     * Reads the next chunk from the stream.
+     * @return chunk content, empty array when the stream is exhausted
+     * @throws IOException if reading fails
+     */
+    byte[] nextChunk() throws IOException;
+}
@@ -0,0 +1,15 @@
+package dev.nexonm.distfs.metadata.service.chunking;
+
+/**
+ * How a file is split into chunks.
+ */
+public enum ChunkingMode {
+    /**
+     * Equal chunks sized by the {@link dev.nexonm.distfs.metadata.service.ChunkSizeCalculator}
+     */
+    FIXED,
+    /**
+     * Boundaries chosen by content, see {@link ContentDefinedChunker}
+     */
+    CONTENT_DEFINED
+}
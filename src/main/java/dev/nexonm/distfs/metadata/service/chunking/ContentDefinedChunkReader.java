@@ -0,0 +1,70 @@
+package dev.nexonm.distfs.metadata.service.chunking;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * FastCDC chunking: a boundary is placed where the gear rolling hash of the last bytes matches a mask,
+ * so boundaries depend on the content and survive insertions and deletions earlier in the file.
+ * A stricter mask is used before the average size and a looser one after it, which keeps chunk sizes
+ * close to the average.
+ */
+public class ContentDefinedChunkReader implements ChunkReader {
+
+    private final InputStream inputStream;
+    private final ContentDefinedChunker chunker;
+    private final byte[] buffer;
+    private int filled;
+    private boolean endOfStream;
+
+    ContentDefinedChunkReader(InputStream inputStream, ContentDefinedChunker chunker) {
+        this.inputStream = inputStream;
+        this.chunker = chunker;
+        this.buffer = new byte[chunker.getMaxChunkSize()];
+    }
+
+    @Override
+    public byte[] nextChunk() throws IOException {
+        if (!endOfStream && filled < buffer.length) {
+            int bytesRead = inputStream.readNBytes(buffer, filled, buffer.length - filled);
+            filled += bytesRead;
+            endOfStream = filled < buffer.length;
+        }
+        if (filled == 0) {
+            return new byte[0];
+        }
+        int cut = findCutPoint(filled);
+        byte[] chunk = Arrays.copyOf(buffer, cut);
+        // Keep the rest of the buffer for the next chunk
+        System.arraycopy(buffer, cut, buffer, 0, filled - cut);
+        filled -= cut;
+        return chunk;
+    }
+
+    private int findCutPoint(int length) {
+        int minSize = chunker.getMinChunkSize();
+        if (length <= minSize) {
+            return length;
+        }
+        long[] gear = chunker.getGear();
+        long strictMask = chunker.getStrictMask();
+        long looseMask = chunker.getLooseMask();
+        int normalSize = Math.min(chunker.getAvgChunkSize(), length);
+        long fingerprint = 0;
+        int i = minSize;
+        for (; i < normalSize; i++) {
+            fingerprint = (fingerprint << 1) + gear[buffer[i] & 0xff];
+            if ((fingerprint & strictMask) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < length; i++) {
+            fingerprint = (fingerprint << 1) + gear[buffer[i] & 0xff];
+            if ((fingerprint & looseMask) == 0) {
+                return i + 1;
+            }
+        }
+        return length;
+    }
+}
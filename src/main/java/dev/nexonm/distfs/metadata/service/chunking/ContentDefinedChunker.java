@@ -0,0 +1,70 @@
+package dev.nexonm.distfs.metadata.service.chunking;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+
+/**
+ * Configuration and shared tables of the content-defined chunking.
+ */
+@Component
+@Slf4j
+@Getter(AccessLevel.PACKAGE)
+public class ContentDefinedChunker {
+
+    // Fixed seed, boundaries must stay the same across restarts and versions
+    private static final long GEAR_SEED = 0x5DEECE66DL;
+
+    @Getter
+    @Value("${storage.chunk.cdc.size.min:1048576}") // 1048576 bytes = 1MB
+    private int minChunkSize;
+
+    @Getter
+    @Value("${storage.chunk.cdc.size.avg:4194304}") // 4194304 bytes = 4MB
+    private int avgChunkSize;
+
+    @Getter
+    @Value("${storage.chunk.cdc.size.max:16777216}") // 16777216 bytes = 16MB
+    private int maxChunkSize;
+
+    private final long[] gear = new long[256];
+    private long strictMask;
+    private long looseMask;
+
+    @PostConstruct
+    public void initialize() {
+        if (minChunkSize <= 0 || minChunkSize >= avgChunkSize || avgChunkSize >= maxChunkSize) {
+            throw new IllegalStateException(String.format(
+                    "Content-defined chunk sizes must satisfy 0 < min < avg < max, got %d/%d/%d",
+                    minChunkSize, avgChunkSize, maxChunkSize));
+        }
+        long state = GEAR_SEED;
+        for (int i = 0; i < gear.length; i++) {
+            // SplitMix64
+            state += 0x9E3779B97F4A7C15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            gear[i] = z ^ (z >>> 31);
+        }
+        // The gear hash shifts left, so the high bits depend on the most bytes of the window
+        int bits = 63 - Long.numberOfLeadingZeros(avgChunkSize - minChunkSize);
+        strictMask = -1L << (64 - (bits + 2));
+        looseMask = -1L << (64 - (bits - 2));
+        log.info("Content-defined chunking configured with min={} avg={} max={} bytes",
+                minChunkSize, avgChunkSize, maxChunkSize);
+    }
+
+    /**
+     * @param inputStream stream to split
+     * @return new reader of content-defined chunks
+     */
+    public ChunkReader newReader(InputStream inputStream) {
+        return new ContentDefinedChunkReader(inputStream, this);
+    }
+}
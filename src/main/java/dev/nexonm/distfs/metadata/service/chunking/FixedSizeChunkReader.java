@@ -0,0 +1,23 @@
+package dev.nexonm.distfs.metadata.service.chunking;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Chunks of equal size, only the last chunk can be smaller.
+ */
+public class FixedSizeChunkReader implements ChunkReader {
+
+    private final InputStream inputStream;
+    private final int chunkSizeBytes;
+
+    public FixedSizeChunkReader(InputStream inputStream, int chunkSizeBytes) {
+        this.inputStream = inputStream;
+        this.chunkSizeBytes = chunkSizeBytes;
+    }
+
+    @Override
+    public byte[] nextChunk() throws IOException {
+        return inputStream.readNBytes(chunkSizeBytes);
+    }
+}
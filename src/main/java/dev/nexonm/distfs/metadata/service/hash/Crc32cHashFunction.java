@@ -0,0 +1,42 @@
+package dev.nexonm.distfs.metadata.service.hash;
+
+import org.springframework.stereotype.Component;
+
+import java.util.zip.CRC32C;
+
+/**
+ * CRC32C checksum. Hardware accelerated on most CPUs, detects corruption but does not identify content.
+ */
+@Component
+public class Crc32cHashFunction implements HashFunction {
+
+    public static final String NAME = "CRC32C";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isCryptographic() {
+        return false;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        CRC32C crc = new CRC32C();
+        return new Hasher() {
+            @Override
+            public void update(byte[] data, int offset, int length) {
+                crc.update(data, offset, length);
+            }
+
+            @Override
+            public byte[] digest() {
+                long value = crc.getValue();
+                crc.reset();
+                return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+            }
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package dev.nexonm.distfs.metadata.service.hash;
+
+/**
+ * Checksum algorithm that can be used for file and chunk hashes.
+ * Implementations registered as beans are picked up by the {@link dev.nexonm.distfs.metadata.service.HashGenerationService},
+ * any other name is resolved through {@link java.security.MessageDigest}.
+ */
+public interface HashFunction {
+
+    /**
+     * @return name of the algorithm as it is stored with files and chunks
+     */
+    String getName();
+
+    /**
+     * @return true if the hash can be used to identify content, false for integrity-only checksums
+     */
+    boolean isCryptographic();
+
+    /**
+     * @return new hasher, a hasher is not thread safe
+     */
+    Hasher newHasher();
+}
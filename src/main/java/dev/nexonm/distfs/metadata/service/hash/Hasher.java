@@ -0,0 +1,15 @@
+package dev.nexonm.distfs.metadata.service.hash;
+
+/**
+ * Stateful hash computation, reusable after {@link #digest()}.
+ */
+public interface Hasher {
+
+    void update(byte[] data, int offset, int length);
+
+    /**
+     * Completes the computation and resets the hasher.
+     * @return hash bytes
+     */
+    byte[] digest();
+}
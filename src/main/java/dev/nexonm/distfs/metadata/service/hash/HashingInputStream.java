@@ -0,0 +1,53 @@
+package dev.nexonm.distfs.metadata.service.hash;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that feeds every byte read into a {@link Hasher}.
+ */
+public class HashingInputStream extends FilterInputStream {
+
+    private final Hasher hasher;
+
+    public HashingInputStream(InputStream in, Hasher hasher) {
+        super(in);
+        this.hasher = hasher;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = in.read();
+        if (value != -1) {
+            hasher.update(new byte[]{(byte) value}, 0, 1);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int bytesRead = in.read(b, off, len);
+        if (bytesRead > 0) {
+            hasher.update(b, off, bytesRead);
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        throw new IOException("Skipping is not supported while hashing");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * @return hasher fed by this stream
+     */
+    public Hasher getHasher() {
+        return hasher;
+    }
+}
@@ -0,0 +1,60 @@
+package dev.nexonm.distfs.metadata.service.hash;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * {@link HashFunction} backed by a JDK {@link MessageDigest}, e.g. SHA-256.
+ * Only digests with at least 128-bit collision resistance identify content, MD5, SHA-1 and the truncated
+ * SHA-2 and SHA-3 variants are used as checksums only.
+ */
+public class MessageDigestHashFunction implements HashFunction {
+
+    private static final Set<String> COLLISION_RESISTANT = Set.of(
+            "SHA-256", "SHA-384", "SHA-512", "SHA-512/256", "SHA3-256", "SHA3-384", "SHA3-512");
+
+    private final String name;
+
+    /**
+     * @param name message digest algorithm name
+     * @throws NoSuchAlgorithmException if the JDK has no such algorithm
+     */
+    public MessageDigestHashFunction(String name) throws NoSuchAlgorithmException {
+        MessageDigest.getInstance(name);
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isCryptographic() {
+        return COLLISION_RESISTANT.contains(name.toUpperCase(Locale.ROOT));
+    }
+
+    @Override
+    public Hasher newHasher() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            // Checked in the constructor
+            throw new IllegalStateException(e);
+        }
+        return new Hasher() {
+            @Override
+            public void update(byte[] data, int offset, int length) {
+                digest.update(data, offset, length);
+            }
+
+            @Override
+            public byte[] digest() {
+                return digest.digest();
+            }
+        };
+    }
+}
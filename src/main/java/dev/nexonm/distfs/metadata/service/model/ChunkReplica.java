@@ -0,0 +1,18 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+
+import java.util.UUID;
+
+/**
+ * One replica of a chunk, with the ids the content is stored under on the node.
+ */
+public record ChunkReplica(UUID chunkId, UUID storedChunkId, UUID storedFileId, Integer chunkIndex,
+                           UUID nodeId, String host, Integer port) {
+
+    public static ChunkReplica of(ChunkProperties chunk, StorageNode node) {
+        return new ChunkReplica(chunk.getId(), chunk.getStoredChunkId(), chunk.getStoredFileId(),
+                chunk.getChunkIndex(), node.getId(), node.getHostAddr(), node.getPort());
+    }
+}
@@ -0,0 +1,19 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Results of sending the chunks of a file.
+ * @param acknowledged results known when the upload may complete
+ * @param pending replica sends still running in the background, empty unless a write quorum is configured
+ * @param placementRetries replicas moved to another node because their planned node failed
+ */
+public record ChunkSendOutcome(List<ChunkSendResult> acknowledged, Flux<ChunkSendResult> pending,
+                               int placementRetries) {
+
+    public static ChunkSendOutcome completed(List<ChunkSendResult> results, int placementRetries) {
+        return new ChunkSendOutcome(results, Flux.empty(), placementRetries);
+    }
+}
@@ -0,0 +1,15 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+import java.util.UUID;
+
+/**
+ * Stored content with the number of its replicas on a set of nodes and the number it was written with.
+ */
+public interface ContentReplicas {
+
+    UUID getStoredChunkId();
+
+    Long getLiveReplicas();
+
+    Long getTargetReplicas();
+}
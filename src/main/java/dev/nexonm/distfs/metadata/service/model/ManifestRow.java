@@ -0,0 +1,18 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+import java.util.UUID;
+
+/**
+ * One replica of one chunk of a file, chunk and host columns are null for a file without chunks or a chunk
+ * without replicas.
+ */
+public record ManifestRow(String filename, Long fileSize, UUID chunkId, UUID contentChunkId, Integer chunkIndex,
+                          Long chunkSize, String chunkHash, String chunkHashAlgorithm, String host, Integer port) {
+
+    /**
+     * @return id under which the chunk content is stored on the nodes
+     */
+    public UUID storedChunkId() {
+        return contentChunkId != null ? contentChunkId : chunkId;
+    }
+}
@@ -0,0 +1,30 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+import java.util.Optional;
+
+/**
+ * Disk usage reported by a storage node.
+ * @param capacityBytes space the node may use for chunks
+ * @param usedBytes space taken by stored chunks
+ * @param chunkCount number of stored chunks
+ */
+public record NodeCapacity(long capacityBytes, long usedBytes, long chunkCount) {
+
+    /**
+     * @return capacity, empty if the node did not report its capacity or usage
+     */
+    public static Optional<NodeCapacity> of(Long capacityBytes, Long usedBytes, Long chunkCount) {
+        if (capacityBytes == null || usedBytes == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new NodeCapacity(capacityBytes, usedBytes, chunkCount != null ? chunkCount : 0));
+    }
+
+    public long freeBytes() {
+        return Math.max(0, capacityBytes - usedBytes);
+    }
+
+    public double usage() {
+        return capacityBytes > 0 ? (double) usedBytes / capacityBytes : 1;
+    }
+}
@@ -0,0 +1,9 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+/**
+ * Load of a storage node caused by this server.
+ * @param inFlightBytes bytes of the requests to the node that are not answered yet
+ * @param uploadLatencyMs recent upload latency per MiB, 0 if nothing was uploaded yet
+ */
+public record NodeLoad(long inFlightBytes, double uploadLatencyMs) {
+}
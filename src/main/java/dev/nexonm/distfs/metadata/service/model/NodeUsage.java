@@ -0,0 +1,15 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+import java.util.UUID;
+
+/**
+ * Content of files that are not deleted stored on a node, shared content counted once.
+ */
+public interface NodeUsage {
+
+    UUID getNodeId();
+
+    Long getChunkCount();
+
+    Long getStoredBytes();
+}
@@ -0,0 +1,22 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+/**
+ * Stored content that is not fully replicated on healthy nodes.
+ */
+public interface ReplicationBacklog {
+
+    /**
+     * @return content with at least one but not enough replicas on healthy nodes
+     */
+    Long getUnderReplicated();
+
+    /**
+     * @return replicas to create until all under-replicated content is fully replicated
+     */
+    Long getMissingReplicas();
+
+    /**
+     * @return content without any replica on a healthy node, it cannot be repaired until a node recovers
+     */
+    Long getUnavailable();
+}
@@ -0,0 +1,15 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+/**
+ * How the replicas of a chunk are written.
+ */
+public enum ReplicationMode {
+    /**
+     * The metadata server sends the chunk to every replica itself
+     */
+    FAN_OUT,
+    /**
+     * The metadata server sends the chunk to the first replica, every node forwards it to the next one
+     */
+    CHAIN
+}
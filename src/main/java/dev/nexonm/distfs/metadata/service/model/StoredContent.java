@@ -0,0 +1,22 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Chunk content stored on the nodes together with everything that references it.
+ * @param storedChunkId id under which the content is stored on the nodes
+ * @param storedFileId file id under which the content is stored on the nodes
+ * @param chunkIndex chunk index under which the content is stored on the nodes
+ * @param chunkSize size of the content
+ * @param hash hash of the content
+ * @param hashAlgorithm algorithm of the hash
+ * @param fileIds files that are not deleted and have a chunk with this content
+ * @param nodes nodes mapped to the content, healthy or not
+ */
+public record StoredContent(UUID storedChunkId, UUID storedFileId, int chunkIndex, long chunkSize, String hash,
+                            String hashAlgorithm, Set<UUID> fileIds, List<StorageNode> nodes) {
+}
@@ -0,0 +1,10 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+/**
+ * Kind of request sent to a storage node, latency of each kind is compared only with the same kind.
+ */
+public enum TransferType {
+    UPLOAD,
+    DOWNLOAD,
+    DELETE
+}
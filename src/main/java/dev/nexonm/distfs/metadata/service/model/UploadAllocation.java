@@ -0,0 +1,38 @@
+package dev.nexonm.distfs.metadata.service.model;
+
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chunks allocated to a client uploading directly to the storage nodes and the chunks it committed so far,
+ * assembled from the stored allocation rows.
+ */
+public record UploadAllocation(UUID fileId, String filename, String fileHash, long fileSize, String hashAlgorithm,
+                               Instant expiresAt, Map<UUID, AllocatedChunk> chunks,
+                               Map<UUID, CommittedChunk> committedChunks) {
+
+    public UploadAllocation(UUID fileId, String filename, String fileHash, long fileSize, String hashAlgorithm,
+                            Instant expiresAt, Map<UUID, AllocatedChunk> chunks) {
+        this(fileId, filename, fileHash, fileSize, hashAlgorithm, expiresAt, chunks, new ConcurrentHashMap<>());
+    }
+
+    public boolean isExpired(Instant now) {
+        return now.isAfter(expiresAt);
+    }
+
+    public boolean isComplete() {
+        return committedChunks.size() == chunks.size();
+    }
+
+    public record AllocatedChunk(UUID chunkId, int chunkIndex, long chunkSize, String hashAlgorithm,
+                                 List<StorageNode> nodes) {
+    }
+
+    public record CommittedChunk(String hash, List<StorageNode> nodes) {
+    }
+}
@@ -0,0 +1,117 @@
+package dev.nexonm.distfs.metadata.service.placement;
+
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.service.NodeConcurrencyLimiter;
+import dev.nexonm.distfs.metadata.service.NodeHealthRegistry;
+import dev.nexonm.distfs.metadata.service.model.DistributionResult;
+import dev.nexonm.distfs.metadata.service.model.NodeLoad;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices: every replica goes to the less loaded of two random nodes that do not hold the chunk yet.
+ * The load of a node is the time it needs for the bytes already in flight to it plus the bytes placed on it by
+ * this upload, estimated from its recent upload latency. Sampling two nodes instead of taking the least loaded
+ * one keeps concurrent uploads from all picking the same node.
+ * Nodes are sampled with a probability proportional to their free space, so disks fill up evenly.
+ */
+@Component
+@RequiredArgsConstructor
+public class LoadAwarePlacementStrategy implements PlacementStrategy {
+
+    private static final double MIB = 1024 * 1024;
+
+    private final NodeConcurrencyLimiter nodeConcurrencyLimiter;
+    private final NodeHealthRegistry nodeHealthRegistry;
+
+    @Override
+    public PlacementMode getMode() {
+        return PlacementMode.LOAD_AWARE;
+    }
+
+    @Override
+    public List<DistributionResult> place(UUID fileId, List<StorageNode> nodes, int chunksNumber,
+                                          int replicationFactor, long chunkSizeBytes) {
+        Map<UUID, NodeLoad> loads = new HashMap<>();
+        nodes.forEach(node -> loads.put(node.getId(), nodeConcurrencyLimiter.getLoad(node.getId())));
+        // Nodes without uploads yet are assumed to be as fast as the average known node
+        double defaultLatency = loads.values().stream()
+                .mapToDouble(NodeLoad::uploadLatencyMs)
+                .filter(latency -> latency > 0)
+                .average()
+                .orElse(1);
+        Map<UUID, Long> freeBytes = new HashMap<>();
+        nodes.forEach(node -> nodeHealthRegistry.getNodeCapacity(node.getId())
+                .ifPresent(capacity -> freeBytes.put(node.getId(), capacity.freeBytes())));
+        // Nodes that did not report their capacity are weighted like the average reporting node
+        long defaultFreeBytes = (long) freeBytes.values().stream().mapToLong(Long::longValue).average().orElse(1);
+        nodes.forEach(node -> freeBytes.putIfAbsent(node.getId(), defaultFreeBytes));
+        Map<UUID, Long> placedBytes = new HashMap<>();
+
+        List<DistributionResult> results = new LinkedList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int chunkIndex = 1; chunkIndex <= chunksNumber; chunkIndex++) {
+            List<StorageNode> candidates = new ArrayList<>(nodes);
+            for (int i = 0; i < replicationFactor; i++) {
+                int first = sampleByFreeSpace(candidates, freeBytes, placedBytes, -1, random);
+                int chosen = first;
+                if (candidates.size() > 1) {
+                    int second = sampleByFreeSpace(candidates, freeBytes, placedBytes, first, random);
+                    chosen = cost(candidates.get(second), loads, placedBytes, defaultLatency, chunkSizeBytes)
+                            < cost(candidates.get(first), loads, placedBytes, defaultLatency, chunkSizeBytes)
+                            ? second : first;
+                }
+                // Removing the node keeps the replicas of the chunk on distinct nodes
+                StorageNode node = candidates.remove(chosen);
+                placedBytes.merge(node.getId(), chunkSizeBytes, Long::sum);
+                results.add(new DistributionResult(node, chunkIndex));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Picks a random candidate, a node is picked with a probability proportional to its free space left
+     * after the bytes this upload placed on it.
+     * @param skipped index of a candidate that must not be picked, -1 for none
+     * @return index of the picked candidate
+     */
+    private int sampleByFreeSpace(List<StorageNode> candidates, Map<UUID, Long> freeBytes,
+                                  Map<UUID, Long> placedBytes, int skipped, ThreadLocalRandom random) {
+        double[] weights = new double[candidates.size()];
+        double total = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (i == skipped) {
+                continue;
+            }
+            UUID nodeId = candidates.get(i).getId();
+            // Every node keeps a minimal weight, a node reported as full is still better than no replica
+            weights[i] = Math.max(1, freeBytes.get(nodeId) - placedBytes.getOrDefault(nodeId, 0L));
+            total += weights[i];
+        }
+        double point = random.nextDouble(total);
+        for (int i = 0; i < weights.length; i++) {
+            point -= weights[i];
+            if (point < 0) {
+                return i;
+            }
+        }
+        return skipped == candidates.size() - 1 ? candidates.size() - 2 : candidates.size() - 1;
+    }
+
+    private double cost(StorageNode node, Map<UUID, NodeLoad> loads, Map<UUID, Long> placedBytes,
+                        double defaultLatency, long chunkSizeBytes) {
+        NodeLoad load = loads.get(node.getId());
+        double latency = load.uploadLatencyMs() > 0 ? load.uploadLatencyMs() : defaultLatency;
+        long queuedBytes = load.inFlightBytes() + placedBytes.getOrDefault(node.getId(), 0L) + chunkSizeBytes;
+        return queuedBytes / MIB * latency;
+    }
+}
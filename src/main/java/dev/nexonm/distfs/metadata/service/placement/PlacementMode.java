@@ -0,0 +1,19 @@
+package dev.nexonm.distfs.metadata.service.placement;
+
+/**
+ * How replicas of new chunks are assigned to storage nodes.
+ */
+public enum PlacementMode {
+    /**
+     * Nodes are taken in turn, see {@link RoundRobinPlacementStrategy}
+     */
+    ROUND_ROBIN,
+    /**
+     * The less loaded of two random nodes is taken, see {@link LoadAwarePlacementStrategy}
+     */
+    LOAD_AWARE,
+    /**
+     * Every chunk goes to the nodes ranked highest for it, see {@link RendezvousPlacementStrategy}
+     */
+    RENDEZVOUS
+}
@@ -0,0 +1,27 @@
+package dev.nexonm.distfs.metadata.service.placement;
+
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.service.model.DistributionResult;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Assigns the replicas of new chunks to storage nodes.
+ */
+public interface PlacementStrategy {
+
+    PlacementMode getMode();
+
+    /**
+     * Chooses the nodes for every chunk, the replicas of one chunk are always on distinct nodes.
+     * @param fileId uuid of the file the chunks belong to
+     * @param nodes healthy nodes, not empty
+     * @param chunksNumber number of chunks, indices start with 1
+     * @param replicationFactor replicas per chunk, at most the number of nodes
+     * @param chunkSizeBytes expected size of a chunk
+     * @return list of distributions
+     */
+    List<DistributionResult> place(UUID fileId, List<StorageNode> nodes, int chunksNumber, int replicationFactor,
+                                   long chunkSizeBytes);
+}
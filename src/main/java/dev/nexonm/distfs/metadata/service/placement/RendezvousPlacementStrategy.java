@@ -0,0 +1,86 @@
+package dev.nexonm.distfs.metadata.service.placement;
+
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.service.NodeHealthRegistry;
+import dev.nexonm.distfs.metadata.service.model.DistributionResult;
+import dev.nexonm.distfs.metadata.service.model.NodeCapacity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Weighted rendezvous (highest random weight) hashing. Every node gets a pseudo-random score for the chunk,
+ * computed from the file id, the chunk index and the node id only, and the replicas go to the nodes with the
+ * highest scores. The replica set of a chunk is therefore known from the node list alone, and adding or removing
+ * a node changes only the chunks for which that node is among the top ones, about 1/N of them.
+ * Scores are weighted by the reported disk capacity, so bigger nodes get proportionally more chunks.
+ */
+@Component
+@RequiredArgsConstructor
+public class RendezvousPlacementStrategy implements PlacementStrategy {
+
+    private final NodeHealthRegistry nodeHealthRegistry;
+
+    @Override
+    public PlacementMode getMode() {
+        return PlacementMode.RENDEZVOUS;
+    }
+
+    @Override
+    public List<DistributionResult> place(UUID fileId, List<StorageNode> nodes, int chunksNumber,
+                                          int replicationFactor, long chunkSizeBytes) {
+        Map<UUID, Double> weights = capacityWeights(nodes);
+        List<DistributionResult> results = new LinkedList<>();
+        for (int chunkIndex = 1; chunkIndex <= chunksNumber; chunkIndex++) {
+            for (StorageNode node : rank(fileId, chunkIndex, nodes, weights).subList(0, replicationFactor)) {
+                results.add(new DistributionResult(node, chunkIndex));
+            }
+        }
+        return results;
+    }
+
+    private List<StorageNode> rank(UUID fileId, int chunkIndex, List<StorageNode> nodes, Map<UUID, Double> weights) {
+        long chunkKey = mix(fileId.getMostSignificantBits())
+                ^ mix(fileId.getLeastSignificantBits() + chunkIndex * 0x9E3779B97F4A7C15L);
+        Map<UUID, Double> scores = new HashMap<>();
+        for (StorageNode node : nodes) {
+            long hash = mix(chunkKey ^ mix(node.getId().getMostSignificantBits())
+                    ^ mix(node.getId().getLeastSignificantBits() * 0xBF58476D1CE4E5B9L));
+            // Uniform value in (0, 1), -weight / ln(u) keeps the share of every node proportional to its weight
+            double uniform = ((hash >>> 11) + 0.5) / (1L << 53);
+            scores.put(node.getId(), -weights.get(node.getId()) / Math.log(uniform));
+        }
+        return nodes.stream()
+                .sorted(Comparator.comparingDouble((StorageNode node) -> scores.get(node.getId())).reversed()
+                        .thenComparing(StorageNode::getId))
+                .toList();
+    }
+
+    /**
+     * Nodes without a reported capacity are weighted like the average reporting node, all nodes are equal
+     * when none reports it.
+     */
+    private Map<UUID, Double> capacityWeights(List<StorageNode> nodes) {
+        Map<UUID, Double> weights = new HashMap<>();
+        nodes.forEach(node -> nodeHealthRegistry.getNodeCapacity(node.getId())
+                .map(NodeCapacity::capacityBytes)
+                .filter(capacity -> capacity > 0)
+                .ifPresent(capacity -> weights.put(node.getId(), capacity.doubleValue())));
+        double defaultWeight = weights.values().stream().mapToDouble(Double::doubleValue).average().orElse(1);
+        nodes.forEach(node -> weights.putIfAbsent(node.getId(), defaultWeight));
+        return weights;
+    }
+
+    // SplitMix64 finalizer, spreads every input bit over the whole result
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
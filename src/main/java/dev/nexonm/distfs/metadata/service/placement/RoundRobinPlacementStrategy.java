@@ -0,0 +1,39 @@
+package dev.nexonm.distfs.metadata.service.placement;
+
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.service.model.DistributionResult;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Takes the nodes in turn starting with the first one. Consecutive replicas of a chunk land on consecutive nodes,
+ * so they are distinct as long as the replication factor does not exceed the number of nodes.
+ */
+@Component
+public class RoundRobinPlacementStrategy implements PlacementStrategy {
+
+    @Override
+    public PlacementMode getMode() {
+        return PlacementMode.ROUND_ROBIN;
+    }
+
+    @Override
+    public List<DistributionResult> place(UUID fileId, List<StorageNode> nodes, int chunksNumber,
+                                          int replicationFactor, long chunkSizeBytes) {
+        List<DistributionResult> results = new LinkedList<>();
+        int nodeIndex = 0;
+        for (int chunkIndex = 0; chunkIndex < chunksNumber; chunkIndex++) {
+            for (int i = 0; i < replicationFactor; i++) {
+                if (nodeIndex >= nodes.size()) {
+                    nodeIndex = 0;
+                }
+                results.add(new DistributionResult(nodes.get(nodeIndex), chunkIndex + 1));
+                nodeIndex++;
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,89 @@
+package dev.nexonm.distfs.metadata.benchmark;
+
+import dev.nexonm.distfs.metadata.service.ChunkHashingExecutor;
+import dev.nexonm.distfs.metadata.service.HashGenerationService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chunk hashing throughput of {@link ChunkHashingExecutor} by pool parallelism, from one thread up to all cores.
+ * Sizes can be set with {@code -Dbenchmark.hash.chunk-size}, {@code -Dbenchmark.hash.chunks} and
+ * {@code -Dbenchmark.hash.algorithm}.
+ */
+@Tag("benchmark")
+class ChunkHashingBenchmark {
+
+    private static final int CHUNK_SIZE = Integer.getInteger("benchmark.hash.chunk-size", 4 * 1024 * 1024);
+    private static final int CHUNKS = Integer.getInteger("benchmark.hash.chunks", 64);
+    private static final String ALGORITHM = System.getProperty("benchmark.hash.algorithm", "SHA-256");
+    private static final int ROUNDS = 3;
+
+    @Test
+    void hashingThroughputByParallelism() {
+        Random random = new Random(42);
+        List<byte[]> chunks = new ArrayList<>();
+        for (int i = 0; i < CHUNKS; i++) {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            random.nextBytes(chunk);
+            chunks.add(chunk);
+        }
+        HashGenerationService hashGenerationService = new HashGenerationService(List.of());
+        ReflectionTestUtils.setField(hashGenerationService, "chunkHashAlgorithm", ALGORITHM);
+        List<String> expected = chunks.stream().map(hashGenerationService::generateChunkHash).toList();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> parallelisms = new TreeSet<>(List.of(cores));
+        for (int parallelism = 1; parallelism < cores; parallelism *= 2) {
+            parallelisms.add(parallelism);
+        }
+        System.out.printf("%s of %d chunks of %d bytes on %d cores%n", ALGORITHM, CHUNKS, CHUNK_SIZE, cores);
+        System.out.printf("%12s %10s %8s%n", "parallelism", "MB/s", "speedup");
+        double singleThreaded = 0;
+        for (int parallelism : parallelisms) {
+            double throughput = measure(hashGenerationService, parallelism, chunks, expected);
+            if (singleThreaded == 0) {
+                singleThreaded = throughput;
+            }
+            System.out.printf("%12d %10.1f %8.2f%n", parallelism, throughput, throughput / singleThreaded);
+        }
+    }
+
+    /**
+     * @return best throughput of the rounds in MB/s
+     */
+    private double measure(HashGenerationService hashGenerationService, int parallelism, List<byte[]> chunks,
+                           List<String> expected) {
+        ChunkHashingExecutor executor = new ChunkHashingExecutor(hashGenerationService);
+        ReflectionTestUtils.setField(executor, "configuredParallelism", parallelism);
+        ReflectionTestUtils.setField(executor, "maxBufferedBytes", 256 * 1024 * 1024);
+        executor.initializePool();
+        try {
+            // The first round warms up the pool threads
+            hashAll(executor, chunks);
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                List<String> hashes = hashAll(executor, chunks);
+                best = Math.min(best, System.nanoTime() - start);
+                assertThat(hashes).isEqualTo(expected);
+            }
+            return (double) CHUNKS * CHUNK_SIZE / (1024 * 1024) / (best / 1e9);
+        } finally {
+            executor.shutdownPool();
+        }
+    }
+
+    private static List<String> hashAll(ChunkHashingExecutor executor, List<byte[]> chunks) {
+        List<CompletableFuture<String>> futures = chunks.stream().map(executor::hashChunk).toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+}
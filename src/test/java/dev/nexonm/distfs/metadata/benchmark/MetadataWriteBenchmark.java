@@ -0,0 +1,133 @@
+package dev.nexonm.distfs.metadata.benchmark;
+
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.repository.ChunkPropertiesRepository;
+import dev.nexonm.distfs.metadata.repository.FileMetadataJdbcRepository;
+import dev.nexonm.distfs.metadata.repository.FilePropertiesRepository;
+import dev.nexonm.distfs.metadata.service.FileMetadataWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statements and milliseconds per upload for persisting new file metadata, batched JDBC inserts of
+ * {@link FileMetadataWriter} against the JPA saves they replaced. Runs on H2, the statement counts carry over
+ * to PostgreSQL, the times only relative to each other. The number of uploads per size can be set with
+ * {@code -Dbenchmark.metadata.uploads}.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@Import({FileMetadataWriter.class, FileMetadataJdbcRepository.class, StatementCounter.class})
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        // Printing every statement would dominate the timings
+        "spring.jpa.show-sql=false"
+})
+class MetadataWriteBenchmark {
+
+    private static final int UPLOADS = Integer.getInteger("benchmark.metadata.uploads", 50);
+    private static final int REPLICAS = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private FileMetadataWriter fileMetadataWriter;
+
+    @Autowired
+    private FilePropertiesRepository filePropertiesRepository;
+
+    @Autowired
+    private ChunkPropertiesRepository chunkPropertiesRepository;
+
+    private List<StorageNode> nodes;
+
+    @BeforeEach
+    void registerNodes() {
+        nodes = IntStream.range(0, REPLICAS)
+                .mapToObj(i -> entityManager.persist(StorageNode.builder()
+                        .id(UUID.randomUUID())
+                        .hostAddr("node-" + i)
+                        .port(8080)
+                        .build()))
+                .toList();
+        entityManager.flush();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 20, 200})
+    void statementsAndTimePerUpload(int chunks) {
+        double[] jdbc = measure(chunks, fileMetadataWriter::insertFile);
+        double[] jpa = measure(chunks, file -> {
+            filePropertiesRepository.save(file);
+            chunkPropertiesRepository.saveAll(file.getChunks());
+        });
+
+        System.out.printf("%d chunks x %d replicas, %d uploads%n", chunks, REPLICAS, UPLOADS);
+        System.out.printf("%8s %18s %12s%n", "path", "statements/upload", "ms/upload");
+        System.out.printf("%8s %18.1f %12.3f%n", "JDBC", jdbc[0], jdbc[1]);
+        System.out.printf("%8s %18.1f %12.3f%n", "JPA", jpa[0], jpa[1]);
+        assertThat(jdbc[0]).isLessThan(jpa[0]);
+    }
+
+    /**
+     * @return statements and milliseconds per upload
+     */
+    private double[] measure(int chunks, Consumer<FileProperties> persist) {
+        // Warm up the statements and the JIT
+        for (int i = 0; i < 5; i++) {
+            persistFile(chunks, persist);
+        }
+        long statements = statementCounter.count();
+        long start = System.nanoTime();
+        for (int i = 0; i < UPLOADS; i++) {
+            persistFile(chunks, persist);
+        }
+        long elapsed = System.nanoTime() - start;
+        return new double[]{(double) (statementCounter.count() - statements) / UPLOADS, elapsed / 1e6 / UPLOADS};
+    }
+
+    private void persistFile(int chunks, Consumer<FileProperties> persist) {
+        FileProperties file = FileProperties.builder()
+                .id(UUID.randomUUID())
+                .filename("benchmark.bin")
+                .totalChunks(chunks)
+                .totalSize(chunks * 1024L)
+                .hash("file-hash")
+                .hashAlgorithm("SHA-256")
+                .build();
+        for (int index = 1; index <= chunks; index++) {
+            ChunkProperties chunk = ChunkProperties.builder()
+                    .id(UUID.randomUUID())
+                    .chunkIndex(index)
+                    .chunkSize(1024L)
+                    .hash("chunk-hash-" + index)
+                    .hashAlgorithm("SHA-256")
+                    .build();
+            nodes.forEach(chunk::addStorageNode);
+            file.addChunk(chunk);
+        }
+        persist.accept(file);
+        // Sends what JPA still holds back, then starts the next upload with an empty persistence context
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
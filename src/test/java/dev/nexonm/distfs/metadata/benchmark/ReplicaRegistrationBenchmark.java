@@ -0,0 +1,139 @@
+package dev.nexonm.distfs.metadata.benchmark;
+
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.repository.FileMetadataJdbcRepository;
+import dev.nexonm.distfs.metadata.service.FileMetadataWriter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost of registering the replicas of a new upload as one node fills up. The upload must neither load nor count
+ * the chunks already on the node, so statements and time per upload stay flat with the fill level.
+ * The levels default to 1K, 10K and 100K chunks, {@code -Dbenchmark.replica.fill-levels=1000,1000000,10000000}
+ * goes up to 10M and needs a few GB of heap.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@Import({FileMetadataWriter.class, FileMetadataJdbcRepository.class, StatementCounter.class})
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        // Printing every statement would dominate the timings
+        "spring.jpa.show-sql=false"
+})
+class ReplicaRegistrationBenchmark {
+
+    private static final String FILL_LEVELS = System.getProperty("benchmark.replica.fill-levels", "1000,10000,100000");
+    private static final int UPLOADS = Integer.getInteger("benchmark.replica.uploads", 50);
+    private static final int CHUNKS = 20;
+    private static final int REPLICAS = 3;
+
+    private static final String INSERT_FILL_FILE = "INSERT INTO file_properties " +
+            "(file_id, filename, total_chunks, total_size, hash, hash_algorithm, hash_verified) " +
+            "VALUES (?, 'fill.bin', ?, ?, 'fill', 'SHA-256', TRUE)";
+    private static final String INSERT_FILL_CHUNKS = "INSERT INTO chunk_properties " +
+            "(chunk_id, file_id, chunk_index, chunk_size, hash, hash_algorithm) " +
+            "SELECT RANDOM_UUID(), ?, X, 1024, 'fill', 'SHA-256' FROM SYSTEM_RANGE(1, ?)";
+    private static final String INSERT_FILL_MAPPINGS = "INSERT INTO chunk_node_mapping (chunk_id, node_id) " +
+            "SELECT chunk_id, ? FROM chunk_properties WHERE file_id = ?";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private FileMetadataWriter fileMetadataWriter;
+
+    @Test
+    void registrationCostStaysFlatAsNodeFills() {
+        List<StorageNode> nodes = IntStream.range(0, REPLICAS)
+                .mapToObj(i -> entityManager.persist(StorageNode.builder()
+                        .id(UUID.randomUUID())
+                        .hostAddr("node-" + i)
+                        .port(8080)
+                        .build()))
+                .toList();
+        entityManager.flush();
+        StorageNode filledNode = nodes.getFirst();
+
+        System.out.printf("%d chunks x %d replicas per upload, %d uploads per level%n", CHUNKS, REPLICAS, UPLOADS);
+        System.out.printf("%14s %18s %12s%n", "node chunks", "statements/upload", "ms/upload");
+        List<Double> statementsPerLevel = new ArrayList<>();
+        long filled = 0;
+        for (long level : Arrays.stream(FILL_LEVELS.split(",")).map(String::trim).mapToLong(Long::parseLong)
+                .toArray()) {
+            filled += fill(filledNode, level - filled);
+            for (int i = 0; i < 5; i++) {
+                upload(nodes);
+            }
+            long statements = statementCounter.count();
+            long start = System.nanoTime();
+            for (int i = 0; i < UPLOADS; i++) {
+                upload(nodes);
+            }
+            long elapsed = System.nanoTime() - start;
+            double statementsPerUpload = (double) (statementCounter.count() - statements) / UPLOADS;
+            statementsPerLevel.add(statementsPerUpload);
+            System.out.printf("%14d %18.1f %12.3f%n", filled, statementsPerUpload, elapsed / 1e6 / UPLOADS);
+        }
+        assertThat(statementsPerLevel).containsOnly(statementsPerLevel.getFirst());
+    }
+
+    /**
+     * Stores a file with the given number of chunks on the node.
+     * @return number of chunks added
+     */
+    private long fill(StorageNode node, long chunks) {
+        if (chunks <= 0) {
+            return 0;
+        }
+        UUID fileId = UUID.randomUUID();
+        jdbcTemplate.update(INSERT_FILL_FILE, fileId, chunks, chunks * 1024);
+        jdbcTemplate.update(INSERT_FILL_CHUNKS, fileId, chunks);
+        jdbcTemplate.update(INSERT_FILL_MAPPINGS, node.getId(), fileId);
+        return chunks;
+    }
+
+    private void upload(List<StorageNode> nodes) {
+        FileProperties file = FileProperties.builder()
+                .id(UUID.randomUUID())
+                .filename("upload.bin")
+                .totalChunks(CHUNKS)
+                .totalSize(CHUNKS * 1024L)
+                .hash("file-hash")
+                .hashAlgorithm("SHA-256")
+                .build();
+        for (int index = 1; index <= CHUNKS; index++) {
+            ChunkProperties chunk = ChunkProperties.builder()
+                    .id(UUID.randomUUID())
+                    .chunkIndex(index)
+                    .chunkSize(1024L)
+                    .hash("chunk-hash-" + index)
+                    .hashAlgorithm("SHA-256")
+                    .build();
+            nodes.forEach(chunk::addStorageNode);
+            file.addChunk(chunk);
+        }
+        fileMetadataWriter.insertFile(file);
+    }
+}
@@ -0,0 +1,83 @@
+package dev.nexonm.distfs.metadata.benchmark;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the statements sent through the data source of the test context, from JPA and from plain JDBC alike.
+ * A JDBC batch is one round trip and counts once.
+ */
+@TestConfiguration
+public class StatementCounter implements BeanPostProcessor {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final AtomicLong statements = new AtomicLong();
+
+    public long count() {
+        return statements.get();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource)) {
+            return bean;
+        }
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return countingConnection(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return countingConnection(super.getConnection(username, password));
+            }
+        };
+    }
+
+    private Connection countingConnection(Connection connection) {
+        return proxy(Connection.class, connection, (method, result) -> switch (result) {
+            case CallableStatement statement -> proxy(CallableStatement.class, statement, this::counted);
+            case PreparedStatement statement -> proxy(PreparedStatement.class, statement, this::counted);
+            case Statement statement -> proxy(Statement.class, statement, this::counted);
+            case null, default -> result;
+        });
+    }
+
+    private Object counted(Method method, Object result) {
+        if (EXECUTE_METHODS.contains(method.getName())) {
+            statements.incrementAndGet();
+        }
+        return result;
+    }
+
+    private interface ResultMapper {
+        Object map(Method method, Object result);
+    }
+
+    private static <T> T proxy(Class<T> type, T target, ResultMapper mapper) {
+        return type.cast(Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    try {
+                        return mapper.map(method, method.invoke(target, args));
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }));
+    }
+}
@@ -0,0 +1,171 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.dto.request.ChunkCommitRequest;
+import dev.nexonm.distfs.metadata.dto.request.FileAllocateRequest;
+import dev.nexonm.distfs.metadata.dto.response.ChunkAllocationResponse;
+import dev.nexonm.distfs.metadata.dto.response.ChunkCommitResponse;
+import dev.nexonm.distfs.metadata.dto.response.FileAllocationResponse;
+import dev.nexonm.distfs.metadata.dto.response.HostResponse;
+import dev.nexonm.distfs.metadata.entity.DirectUpload;
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.ReplicaTombstone;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.exception.FileNotFoundException;
+import dev.nexonm.distfs.metadata.repository.FileMetadataJdbcRepository;
+import dev.nexonm.distfs.metadata.service.model.DistributionResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Direct upload allocations are kept in the database: commits read the stored allocation, a completed upload
+ * persists the file and an expired one leaves tombstones for its replicas.
+ */
+@DataJpaTest
+@Import({DirectUploadService.class, ChunkSizeCalculator.class, HashGenerationService.class,
+        FileMetadataWriter.class, FileMetadataJdbcRepository.class})
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "storage.chunk.size.min=1024",
+        "storage.chunk.count=4"
+})
+class DirectUploadServiceTest {
+
+    private static final int REPLICAS = 2;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private DirectUploadService directUploadService;
+
+    @MockitoBean
+    private ChunkDistributionService chunkDistributionService;
+
+    private List<StorageNode> nodes;
+
+    @BeforeEach
+    void registerNodes() {
+        nodes = IntStream.range(0, REPLICAS)
+                .mapToObj(i -> entityManager.persist(StorageNode.builder()
+                        .id(UUID.randomUUID())
+                        .hostAddr("node-" + i)
+                        .port(8080)
+                        .build()))
+                .toList();
+        when(chunkDistributionService.distributeChunksWithReplication(any(), anyList(), anyInt(), anyLong()))
+                .thenAnswer(invocation -> {
+                    List<DistributionResult> distribution = new ArrayList<>();
+                    for (int chunkIndex = 1; chunkIndex <= (int) invocation.getArgument(2); chunkIndex++) {
+                        for (StorageNode node : nodes) {
+                            distribution.add(new DistributionResult(node, chunkIndex));
+                        }
+                    }
+                    return distribution;
+                });
+    }
+
+    @Test
+    void persistsFileWhenAllStoredChunksAreCommitted() {
+        FileAllocationResponse allocation = allocate();
+        assertThat(allocation.getChunks()).hasSize(4);
+
+        ChunkCommitResponse response = null;
+        for (ChunkAllocationResponse chunk : allocation.getChunks()) {
+            // Nothing is kept between commits but the rows
+            entityManager.clear();
+            response = directUploadService.commitChunk(new ChunkCommitRequest(allocation.getFileUUID(),
+                    chunk.getChunkUUID(), "HASH-" + chunk.getChunkIndex(), List.of(chunk.getHosts().getFirst())));
+        }
+
+        assertThat(response.isCompleted()).isTrue();
+        assertThat(response.getCommittedChunks()).isEqualTo(4);
+        entityManager.clear();
+        FileProperties file = entityManager.find(FileProperties.class, UUID.fromString(allocation.getFileUUID()));
+        assertThat(file.getHashVerified()).isFalse();
+        assertThat(file.getChunks()).hasSize(4).allSatisfy(chunk -> {
+            assertThat(chunk.getHash()).isEqualTo("hash-" + chunk.getChunkIndex());
+            assertThat(chunk.getStorageNodes()).extracting(StorageNode::getHostAddr).containsExactly("node-0");
+        });
+        assertThat(entityManager.find(DirectUpload.class, file.getId())).isNull();
+        assertThat(count("DirectUploadChunk")).isZero();
+        assertThat(count("DirectUploadReplica")).isZero();
+    }
+
+    @Test
+    void tombstonesReplicasOfExpiredAllocation() {
+        FileAllocationResponse allocation = allocate();
+        ChunkAllocationResponse first = allocation.getChunks().getFirst();
+        directUploadService.commitChunk(new ChunkCommitRequest(allocation.getFileUUID(), first.getChunkUUID(),
+                "hash-1", first.getHosts()));
+        expire(UUID.fromString(allocation.getFileUUID()));
+
+        assertThatThrownBy(() -> directUploadService.commitChunk(new ChunkCommitRequest(allocation.getFileUUID(),
+                allocation.getChunks().getLast().getChunkUUID(), "hash-4", first.getHosts())))
+                .isInstanceOf(FileNotFoundException.class);
+        directUploadService.expireAllocations();
+
+        entityManager.clear();
+        List<ReplicaTombstone> tombstones = entityManager.getEntityManager()
+                .createQuery("SELECT t FROM ReplicaTombstone t", ReplicaTombstone.class)
+                .getResultList();
+        assertThat(tombstones).hasSize(4 * REPLICAS);
+        assertThat(tombstones).extracting(ReplicaTombstone::getStoredChunkId)
+                .hasSameElementsAs(allocation.getChunks().stream()
+                        .map(chunk -> UUID.fromString(chunk.getChunkUUID()))
+                        .toList());
+        assertThat(count("DirectUpload")).isZero();
+        assertThat(count("DirectUploadReplica")).isZero();
+        assertThat(entityManager.find(FileProperties.class, UUID.fromString(allocation.getFileUUID()))).isNull();
+        assertThat(count("ChunkProperties")).isZero();
+    }
+
+    @Test
+    void rejectsHostsThatWereNotAllocated() {
+        FileAllocationResponse allocation = allocate();
+        ChunkAllocationResponse chunk = allocation.getChunks().getFirst();
+
+        assertThatThrownBy(() -> directUploadService.commitChunk(new ChunkCommitRequest(allocation.getFileUUID(),
+                chunk.getChunkUUID(), "hash-1", List.of(new HostResponse("other", 8080)))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private FileAllocationResponse allocate() {
+        FileAllocationResponse allocation = directUploadService.allocate(
+                new FileAllocateRequest("direct.bin", "FILE-HASH", 4096L));
+        entityManager.clear();
+        return allocation;
+    }
+
+    private void expire(UUID fileId) {
+        DirectUpload upload = entityManager.find(DirectUpload.class, fileId);
+        upload.setExpiresAt(Instant.now().minusSeconds(1));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private long count(String entity) {
+        return entityManager.getEntityManager()
+                .createQuery("SELECT COUNT(e) FROM " + entity + " e", Long.class)
+                .getSingleResult();
+    }
+}
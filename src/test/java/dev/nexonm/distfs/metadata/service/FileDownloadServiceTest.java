@@ -0,0 +1,99 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.dto.request.FileDownloadRequest;
+import dev.nexonm.distfs.metadata.dto.response.ChunkAllocationResponse;
+import dev.nexonm.distfs.metadata.dto.response.FileDownloadResponse;
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A manifest must be loaded with one statement however many chunks and replicas the file has.
+ */
+@DataJpaTest
+@Import({FileDownloadService.class, FileAllocationCache.class})
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "download.cache.enabled=false"
+})
+class FileDownloadServiceTest {
+
+    private static final int CHUNKS = 20;
+    private static final int REPLICAS = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    private UUID fileId;
+
+    @BeforeEach
+    void storeFile() {
+        List<StorageNode> nodes = IntStream.range(0, REPLICAS)
+                .mapToObj(i -> entityManager.persist(StorageNode.builder()
+                        .id(UUID.randomUUID())
+                        .hostAddr("node-" + i)
+                        .port(8080)
+                        .build()))
+                .toList();
+        FileProperties file = FileProperties.builder()
+                .id(UUID.randomUUID())
+                .filename("manifest.bin")
+                .totalChunks(CHUNKS)
+                .totalSize(CHUNKS * 1024L)
+                .hash("file-hash")
+                .hashAlgorithm("SHA-256")
+                .build();
+        for (int index = 1; index <= CHUNKS; index++) {
+            ChunkProperties chunk = ChunkProperties.builder()
+                    .id(UUID.randomUUID())
+                    .chunkIndex(index)
+                    .chunkSize(1024L)
+                    .hash("chunk-hash-" + index)
+                    .hashAlgorithm("SHA-256")
+                    .build();
+            nodes.forEach(chunk::addStorageNode);
+            file.addChunk(chunk);
+        }
+        fileId = entityManager.persist(file).getId();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void loadsManifestWithOneStatement() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        FileDownloadResponse manifest = fileDownloadService.getFileAllocations(
+                new FileDownloadRequest(fileId.toString()));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(manifest.getChunks()).hasSize(CHUNKS);
+        assertThat(manifest.getChunks()).extracting(ChunkAllocationResponse::getChunkIndex)
+                .containsExactlyElementsOf(IntStream.rangeClosed(1, CHUNKS).boxed().toList());
+        assertThat(manifest.getChunks()).allSatisfy(chunk -> assertThat(chunk.getHosts()).hasSize(REPLICAS));
+    }
+}
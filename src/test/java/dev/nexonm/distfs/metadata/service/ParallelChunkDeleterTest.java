@@ -0,0 +1,106 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.config.WebClientConfig;
+import dev.nexonm.distfs.metadata.service.model.ChunkDeleteResult;
+import dev.nexonm.distfs.metadata.service.model.ChunkReplica;
+import dev.nexonm.distfs.metadata.stub.StubStorageNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringJUnitConfig({WebClientConfig.class, NodeConcurrencyLimiter.class, ParallelChunkDeleter.class})
+@TestPropertySource(properties = {
+        "chunk.delete.max-retries=0",
+        "chunk.delete.batch.size=10"
+})
+class ParallelChunkDeleterTest {
+
+    private static final String BATCH_DELETE = "DELETE /api/chunk/delete/batch";
+    private static final String SINGLE_DELETE = "DELETE /api/chunk/delete";
+
+    @Autowired
+    private ParallelChunkDeleter parallelChunkDeleter;
+
+    private final List<StubStorageNode> nodes = new ArrayList<>();
+
+    @AfterEach
+    void stopNodes() throws IOException {
+        for (StubStorageNode node : nodes) {
+            node.close();
+        }
+    }
+
+    @Test
+    void deletesChunksOfEveryNodeWithBatchRequests() {
+        StubStorageNode first = start();
+        StubStorageNode second = start();
+        List<ChunkReplica> replicas = new ArrayList<>(replicas(first, 15));
+        replicas.addAll(replicas(second, 5));
+
+        List<ChunkDeleteResult> results = parallelChunkDeleter.deleteReplicas(replicas);
+
+        assertThat(results).hasSize(20).allMatch(ChunkDeleteResult::success);
+        // 15 chunks in batches of 10
+        assertThat(first.requests()).containsOnly(BATCH_DELETE).hasSize(2);
+        assertThat(second.requests()).containsExactly(BATCH_DELETE);
+        replicas.forEach(replica -> assertThat(first.holds(replica.storedChunkId())).isFalse());
+        replicas.forEach(replica -> assertThat(second.holds(replica.storedChunkId())).isFalse());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {404, 405, 501})
+    void fallsBackToSingleDeletesWhenBatchIsUnsupported(int status) {
+        StubStorageNode node = start().rejectBatchAndChain(status);
+
+        List<ChunkDeleteResult> results = parallelChunkDeleter.deleteReplicas(replicas(node, 3));
+
+        assertThat(results).hasSize(3).allMatch(ChunkDeleteResult::success);
+        assertThat(node.requestCount(BATCH_DELETE)).isEqualTo(1);
+        assertThat(node.requestCount(SINGLE_DELETE)).isEqualTo(3);
+
+        // The node is remembered, later deletes skip the batch endpoint
+        parallelChunkDeleter.deleteReplicas(replicas(node, 2));
+        assertThat(node.requestCount(BATCH_DELETE)).isEqualTo(1);
+        assertThat(node.requestCount(SINGLE_DELETE)).isEqualTo(5);
+    }
+
+    @Test
+    void reportsFailedBatchWithoutFallingBack() {
+        StubStorageNode node = start().failing(true);
+
+        List<ChunkDeleteResult> results = parallelChunkDeleter.deleteReplicas(replicas(node, 3));
+
+        assertThat(results).hasSize(3).noneMatch(ChunkDeleteResult::success);
+        assertThat(node.requests()).containsExactly(BATCH_DELETE);
+    }
+
+    private StubStorageNode start() {
+        StubStorageNode node = StubStorageNode.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private List<ChunkReplica> replicas(StubStorageNode node, int count) {
+        UUID fileId = UUID.randomUUID();
+        UUID nodeId = node.toStorageNode().getId();
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(index -> {
+                    UUID chunkId = UUID.randomUUID();
+                    node.store(chunkId);
+                    return new ChunkReplica(chunkId, chunkId, fileId, index, nodeId, node.host(), node.port());
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,149 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.config.WebClientConfig;
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import dev.nexonm.distfs.metadata.service.model.ChunkDivisionResult;
+import dev.nexonm.distfs.metadata.service.model.ChunkSendOutcome;
+import dev.nexonm.distfs.metadata.service.model.ChunkSendResult;
+import dev.nexonm.distfs.metadata.service.model.DistributionResult;
+import dev.nexonm.distfs.metadata.stub.StubStorageNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.when;
+
+/**
+ * Batch uploads against stub storage nodes.
+ */
+@SpringJUnitConfig({WebClientConfig.class, NodeConcurrencyLimiter.class, NodeHealthRegistry.class,
+        FileAllocationCache.class, ParallelChunkDeleter.class, ParallelChunkSender.class})
+@TestPropertySource(properties = {
+        "chunk.send.batch.enabled=true",
+        "chunk.send.max-retries=0",
+        "chunk.delete.max-retries=0"
+})
+class ParallelChunkSenderBatchTest {
+
+    private static final String BATCH_UPLOAD = "POST /api/chunk/upload/batch";
+
+    @Autowired
+    private ParallelChunkSender parallelChunkSender;
+
+    @Autowired
+    private NodeHealthRegistry nodeHealthRegistry;
+
+    @MockitoBean
+    private StorageNodeRepository storageNodeRepository;
+
+    @MockitoBean
+    private ChunkDeduplicationService deduplicationService;
+
+    @MockitoBean
+    private ChunkDistributionService chunkDistributionService;
+
+    private final List<StubStorageNode> stubs = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(deduplicationService.findStoredReplicas(any(), anyInt())).thenReturn(Mono.just(List.of()));
+        // Replacements are the first healthy candidate that does not hold the chunk yet
+        when(chunkDistributionService.selectReplacementNode(anyList(), anySet())).thenAnswer(invocation -> {
+            List<StorageNode> candidates = invocation.getArgument(0);
+            Set<UUID> excluded = invocation.getArgument(1);
+            return candidates.stream()
+                    .filter(node -> !excluded.contains(node.getId()))
+                    .filter(node -> nodeHealthRegistry.isNodeHealthy(node.getId()))
+                    .findFirst();
+        });
+        for (int i = 0; i < 4; i++) {
+            StubStorageNode stub = StubStorageNode.start();
+            stubs.add(stub);
+            nodeHealthRegistry.updateNodeHealth(stub.toStorageNode().getId(), true);
+        }
+    }
+
+    @AfterEach
+    void stopNodes() throws IOException {
+        for (StubStorageNode stub : stubs) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void replacesRejectedChunksWithoutSuspectingTheNode() {
+        ChunkDivisionResult first = chunk(1);
+        ChunkDivisionResult second = chunk(2);
+        StubStorageNode node = stubs.get(0).rejectChunk(second.chunkProperties().getId());
+
+        ChunkSendOutcome outcome = send(List.of(first, second), stubs.subList(0, 2));
+
+        assertThat(outcome.acknowledged()).hasSize(4).allMatch(ChunkSendResult::result);
+        assertThat(outcome.placementRetries()).isEqualTo(1);
+        assertThat(node.requests()).containsExactly(BATCH_UPLOAD);
+        assertThat(nodeHealthRegistry.isNodeHealthy(node.toStorageNode().getId())).isTrue();
+        assertThat(stubs.get(2).holds(second.chunkProperties().getId())).isTrue();
+    }
+
+    @Test
+    void suspectsNodeWhoseBatchRequestFails() {
+        ChunkDivisionResult first = chunk(1);
+        ChunkDivisionResult second = chunk(2);
+        StubStorageNode node = stubs.get(0).failing(true);
+
+        ChunkSendOutcome outcome = send(List.of(first, second), stubs.subList(0, 2));
+
+        assertThat(outcome.acknowledged()).hasSize(4).allMatch(ChunkSendResult::result);
+        assertThat(nodeHealthRegistry.isNodeHealthy(node.toStorageNode().getId())).isFalse();
+        assertThat(stubs.get(2).holds(first.chunkProperties().getId())).isTrue();
+        assertThat(stubs.get(2).holds(second.chunkProperties().getId())).isTrue();
+    }
+
+    private ChunkSendOutcome send(List<ChunkDivisionResult> chunks, List<StubStorageNode> replicas) {
+        Map<Integer, ChunkDivisionResult> chunkMap = new LinkedHashMap<>();
+        List<DistributionResult> distribution = new ArrayList<>();
+        for (ChunkDivisionResult chunk : chunks) {
+            int chunkIndex = chunk.chunkProperties().getChunkIndex();
+            chunkMap.put(chunkIndex, chunk);
+            replicas.forEach(stub -> distribution.add(new DistributionResult(stub.toStorageNode(), chunkIndex)));
+        }
+        List<StorageNode> candidates = stubs.stream().map(StubStorageNode::toStorageNode).toList();
+        return parallelChunkSender.sendAllChunks(chunkMap, distribution, candidates);
+    }
+
+    private ChunkDivisionResult chunk(int chunkIndex) {
+        FileProperties file = FileProperties.builder().id(UUID.randomUUID()).build();
+        byte[] data = "chunk content".getBytes(StandardCharsets.UTF_8);
+        ChunkProperties properties = ChunkProperties.builder()
+                .id(UUID.randomUUID())
+                .file(file)
+                .chunkIndex(chunkIndex)
+                .chunkSize((long) data.length)
+                .hash("hash")
+                .hashAlgorithm("SHA-256")
+                .build();
+        return new ChunkDivisionResult(properties, data);
+    }
+}
@@ -0,0 +1,164 @@
+package dev.nexonm.distfs.metadata.service;
+
+import dev.nexonm.distfs.metadata.config.WebClientConfig;
+import dev.nexonm.distfs.metadata.entity.ChunkProperties;
+import dev.nexonm.distfs.metadata.entity.FileProperties;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import dev.nexonm.distfs.metadata.service.model.ChunkDivisionResult;
+import dev.nexonm.distfs.metadata.service.model.ChunkSendOutcome;
+import dev.nexonm.distfs.metadata.service.model.ChunkSendResult;
+import dev.nexonm.distfs.metadata.service.model.DistributionResult;
+import dev.nexonm.distfs.metadata.stub.StubStorageNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chain replication against stub storage nodes that forward the chunk down the chain.
+ */
+@SpringJUnitConfig({WebClientConfig.class, NodeConcurrencyLimiter.class, NodeHealthRegistry.class,
+        FileAllocationCache.class, ParallelChunkDeleter.class, ParallelChunkSender.class})
+@TestPropertySource(properties = {
+        "chunk.send.replication-mode=CHAIN",
+        "chunk.send.max-retries=0",
+        "chunk.delete.max-retries=0"
+})
+class ParallelChunkSenderChainTest {
+
+    private static final String CHAIN_UPLOAD = "POST /api/chunk/upload/chain";
+    private static final String SINGLE_UPLOAD = "POST /api/chunk/upload";
+
+    @Autowired
+    private ParallelChunkSender parallelChunkSender;
+
+    @Autowired
+    private NodeHealthRegistry nodeHealthRegistry;
+
+    @MockitoBean
+    private StorageNodeRepository storageNodeRepository;
+
+    @MockitoBean
+    private ChunkDeduplicationService deduplicationService;
+
+    @MockitoBean
+    private ChunkDistributionService chunkDistributionService;
+
+    private final StubStorageNode.Cluster cluster = new StubStorageNode.Cluster();
+    private final List<StubStorageNode> stubs = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(deduplicationService.findStoredReplicas(any(), anyInt())).thenReturn(Mono.just(List.of()));
+        // Replacements are the first healthy candidate that does not hold the chunk yet
+        when(chunkDistributionService.selectReplacementNode(anyList(), anySet())).thenAnswer(invocation -> {
+            List<StorageNode> candidates = invocation.getArgument(0);
+            Set<UUID> excluded = invocation.getArgument(1);
+            return candidates.stream()
+                    .filter(node -> !excluded.contains(node.getId()))
+                    .filter(node -> nodeHealthRegistry.isNodeHealthy(node.getId()))
+                    .findFirst();
+        });
+        for (int i = 0; i < 4; i++) {
+            StubStorageNode stub = cluster.start();
+            stubs.add(stub);
+            nodeHealthRegistry.updateNodeHealth(stub.toStorageNode().getId(), true);
+        }
+    }
+
+    @AfterEach
+    void stopNodes() throws IOException {
+        for (StubStorageNode stub : stubs) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void sendsChunkOnceAndChainForwardsItToEveryReplica() {
+        ChunkDivisionResult chunk = chunk();
+
+        ChunkSendOutcome outcome = send(chunk, stubs.subList(0, 3));
+
+        assertThat(outcome.acknowledged()).hasSize(3).allMatch(ChunkSendResult::result);
+        assertThat(stubs.get(0).requests()).contains(CHAIN_UPLOAD).doesNotContain(SINGLE_UPLOAD);
+        assertThat(stubs.subList(1, 3)).allSatisfy(stub -> {
+            assertThat(stub.requests()).doesNotContain(CHAIN_UPLOAD, SINGLE_UPLOAD);
+            assertThat(stub.holds(chunk.chunkProperties().getId())).isTrue();
+        });
+        assertThat(stubs.get(3).requests()).isEmpty();
+    }
+
+    @Test
+    void sendsReplicasBehindBrokenLinkDirectly() {
+        ChunkDivisionResult chunk = chunk();
+        StubStorageNode broken = stubs.get(1).failing(true);
+
+        ChunkSendOutcome outcome = send(chunk, stubs.subList(0, 3));
+
+        // The chain ends at the broken node, the tail gets the chunk directly and the broken replica moves
+        assertThat(outcome.acknowledged()).hasSize(3).allMatch(ChunkSendResult::result);
+        assertThat(outcome.placementRetries()).isEqualTo(1);
+        assertThat(stubs.get(2).requests()).containsExactly(SINGLE_UPLOAD);
+        assertThat(stubs.get(3).requests()).containsExactly(SINGLE_UPLOAD);
+        assertThat(stubs.get(3).holds(chunk.chunkProperties().getId())).isTrue();
+        assertThat(broken.holds(chunk.chunkProperties().getId())).isFalse();
+        assertThat(nodeHealthRegistry.isNodeHealthy(broken.toStorageNode().getId())).isFalse();
+    }
+
+    @Test
+    void fallsBackToFanOutWhenHeadHasNoChainEndpoint() {
+        stubs.get(0).rejectBatchAndChain(404);
+
+        ChunkSendOutcome first = send(chunk(), stubs.subList(0, 3));
+        ChunkSendOutcome second = send(chunk(), stubs.subList(0, 3));
+
+        assertThat(first.acknowledged()).hasSize(3).allMatch(ChunkSendResult::result);
+        assertThat(second.acknowledged()).hasSize(3).allMatch(ChunkSendResult::result);
+        // The head is remembered, the second chunk goes straight to fan-out
+        assertThat(stubs.get(0).requestCount(CHAIN_UPLOAD)).isEqualTo(1);
+        assertThat(stubs.subList(0, 3)).allSatisfy(stub ->
+                assertThat(stub.requestCount(SINGLE_UPLOAD)).isEqualTo(2));
+    }
+
+    private ChunkSendOutcome send(ChunkDivisionResult chunk, List<StubStorageNode> chain) {
+        List<DistributionResult> distribution = chain.stream()
+                .map(stub -> new DistributionResult(stub.toStorageNode(), 1))
+                .toList();
+        List<StorageNode> candidates = stubs.stream().map(StubStorageNode::toStorageNode).toList();
+        return parallelChunkSender.sendAllChunks(Map.of(1, chunk), distribution, candidates);
+    }
+
+    private ChunkDivisionResult chunk() {
+        FileProperties file = FileProperties.builder().id(UUID.randomUUID()).build();
+        byte[] data = "chunk content".getBytes(StandardCharsets.UTF_8);
+        ChunkProperties properties = ChunkProperties.builder()
+                .id(UUID.randomUUID())
+                .file(file)
+                .chunkIndex(1)
+                .chunkSize((long) data.length)
+                .hash("hash")
+                .hashAlgorithm("SHA-256")
+                .build();
+        return new ChunkDivisionResult(properties, data);
+    }
+}
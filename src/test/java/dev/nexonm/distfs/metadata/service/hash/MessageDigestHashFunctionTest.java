@@ -0,0 +1,26 @@
+package dev.nexonm.distfs.metadata.service.hash;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.security.NoSuchAlgorithmException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Only collision-resistant digests may identify content for dedupe and instant upload.
+ */
+class MessageDigestHashFunctionTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SHA-256", "sha-256", "SHA-384", "SHA-512", "SHA-512/256", "SHA3-256", "SHA3-512"})
+    void identifiesContentWithCollisionResistantDigests(String algorithm) throws NoSuchAlgorithmException {
+        assertThat(new MessageDigestHashFunction(algorithm).isCryptographic()).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"MD2", "MD5", "SHA-1", "SHA-224", "SHA-512/224", "SHA3-224"})
+    void usesWeakDigestsAsChecksumsOnly(String algorithm) throws NoSuchAlgorithmException {
+        assertThat(new MessageDigestHashFunction(algorithm).isCryptographic()).isFalse();
+    }
+}
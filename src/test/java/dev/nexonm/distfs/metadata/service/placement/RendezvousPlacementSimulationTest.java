@@ -0,0 +1,140 @@
+package dev.nexonm.distfs.metadata.service.placement;
+
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import dev.nexonm.distfs.metadata.repository.StorageNodeRepository;
+import dev.nexonm.distfs.metadata.service.FileAllocationCache;
+import dev.nexonm.distfs.metadata.service.NodeHealthRegistry;
+import dev.nexonm.distfs.metadata.service.model.DistributionResult;
+import dev.nexonm.distfs.metadata.service.model.NodeCapacity;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Simulates rendezvous placement of many chunks over synthetic clusters and reports the load skew and the share
+ * of replicas that move when a node is added or removed. A node change should move about 1/N of the replicas,
+ * and nodes with twice the capacity should get about twice the replicas.
+ */
+class RendezvousPlacementSimulationTest {
+
+    private static final int FILES = 40;
+    private static final int CHUNKS_PER_FILE = 300;
+    private static final int REPLICATION_FACTOR = 3;
+    private static final long CAPACITY = 1L << 40;
+
+    private final Random random = new Random(42);
+    private final List<UUID> fileIds = IntStream.range(0, FILES)
+            .mapToObj(i -> new UUID(random.nextLong(), random.nextLong()))
+            .toList();
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 50, 100, 250, 500})
+    void movesAboutOneNthOfReplicasWhenNodesChange(int nodeCount) {
+        NodeHealthRegistry registry = new NodeHealthRegistry(mock(StorageNodeRepository.class),
+                new FileAllocationCache(false, 1));
+        RendezvousPlacementStrategy strategy = new RendezvousPlacementStrategy(registry);
+        List<StorageNode> nodes = nodes(nodeCount + 1);
+        nodes.forEach(node -> registry.updateNodeCapacity(node.getId(), new NodeCapacity(CAPACITY, 0, 0)));
+        List<StorageNode> cluster = nodes.subList(0, nodeCount);
+
+        Map<String, Set<UUID>> placement = place(strategy, cluster);
+        double skew = skew(placement, cluster);
+        double movedOnAdd = movedShare(placement, place(strategy, nodes));
+        double movedOnRemove = movedShare(placement, place(strategy, cluster.subList(1, nodeCount)));
+
+        System.out.printf("nodes=%d skew=%.3f movedOnAdd=%.4f (ideal %.4f) movedOnRemove=%.4f (ideal %.4f)%n",
+                nodeCount, skew, movedOnAdd, 1.0 / (nodeCount + 1), movedOnRemove, 1.0 / nodeCount);
+        assertThat(skew).isLessThan(1.5);
+        assertThat(movedOnAdd).isBetween(0.5 / (nodeCount + 1), 1.5 / (nodeCount + 1));
+        assertThat(movedOnRemove).isBetween(0.5 / nodeCount, 1.5 / nodeCount);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100})
+    void weightsReplicasByCapacity(int nodeCount) {
+        NodeHealthRegistry registry = new NodeHealthRegistry(mock(StorageNodeRepository.class),
+                new FileAllocationCache(false, 1));
+        RendezvousPlacementStrategy strategy = new RendezvousPlacementStrategy(registry);
+        List<StorageNode> cluster = nodes(nodeCount);
+        // Every other node has twice the capacity
+        for (int i = 0; i < nodeCount; i++) {
+            registry.updateNodeCapacity(cluster.get(i).getId(), new NodeCapacity(CAPACITY * (1 + i % 2), 0, 0));
+        }
+
+        Map<UUID, Integer> load = load(place(strategy, cluster));
+        double small = IntStream.range(0, nodeCount).filter(i -> i % 2 == 0)
+                .mapToDouble(i -> load.getOrDefault(cluster.get(i).getId(), 0)).sum();
+        double big = IntStream.range(0, nodeCount).filter(i -> i % 2 == 1)
+                .mapToDouble(i -> load.getOrDefault(cluster.get(i).getId(), 0)).sum();
+
+        System.out.printf("nodes=%d replicas on double-capacity nodes / on single-capacity nodes = %.3f%n",
+                nodeCount, big / small);
+        // Distinct replicas per chunk cap the share of the big nodes slightly below their weight
+        assertThat(big / small).isBetween(1.7, 2.2);
+    }
+
+    private List<StorageNode> nodes(int count) {
+        List<StorageNode> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(StorageNode.builder()
+                    .id(new UUID(random.nextLong(), random.nextLong()))
+                    .hostAddr("node-" + i)
+                    .port(8080)
+                    .build());
+        }
+        return nodes;
+    }
+
+    /**
+     * @return map of <file id and chunk index, nodes of the replicas>
+     */
+    private Map<String, Set<UUID>> place(RendezvousPlacementStrategy strategy, List<StorageNode> nodes) {
+        Map<String, Set<UUID>> placement = new HashMap<>();
+        for (UUID fileId : fileIds) {
+            for (DistributionResult result : strategy.place(fileId, nodes, CHUNKS_PER_FILE, REPLICATION_FACTOR,
+                    1024)) {
+                placement.computeIfAbsent(fileId + "/" + result.chunkIndex(), key -> new HashSet<>())
+                        .add(result.storageNode().getId());
+            }
+        }
+        return placement;
+    }
+
+    private Map<UUID, Integer> load(Map<String, Set<UUID>> placement) {
+        Map<UUID, Integer> load = new HashMap<>();
+        placement.values().forEach(replicas -> replicas.forEach(nodeId -> load.merge(nodeId, 1, Integer::sum)));
+        return load;
+    }
+
+    /**
+     * @return replicas on the fullest node divided by the average replicas per node
+     */
+    private double skew(Map<String, Set<UUID>> placement, List<StorageNode> nodes) {
+        Map<UUID, Integer> load = load(placement);
+        double average = (double) placement.size() * REPLICATION_FACTOR / nodes.size();
+        return nodes.stream().mapToInt(node -> load.getOrDefault(node.getId(), 0)).max().orElse(0) / average;
+    }
+
+    /**
+     * @return share of the replicas that are on a different node after the change
+     */
+    private double movedShare(Map<String, Set<UUID>> before, Map<String, Set<UUID>> after) {
+        long moved = 0;
+        for (Map.Entry<String, Set<UUID>> chunk : before.entrySet()) {
+            moved += chunk.getValue().stream().filter(nodeId -> !after.get(chunk.getKey()).contains(nodeId)).count();
+        }
+        return (double) moved / (before.size() * REPLICATION_FACTOR);
+    }
+}
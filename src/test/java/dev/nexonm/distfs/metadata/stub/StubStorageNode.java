@@ -0,0 +1,250 @@
+package dev.nexonm.distfs.metadata.stub;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nexonm.distfs.metadata.dto.request.ChunkBatchDeleteRequest;
+import dev.nexonm.distfs.metadata.dto.request.ChunkDeleteRequest;
+import dev.nexonm.distfs.metadata.dto.response.ChunkBatchDeleteResponse;
+import dev.nexonm.distfs.metadata.dto.response.ChunkBatchUploadResponse;
+import dev.nexonm.distfs.metadata.dto.response.ChunkChainUploadResponse;
+import dev.nexonm.distfs.metadata.dto.response.ChunkDeleteStatusResponse;
+import dev.nexonm.distfs.metadata.dto.response.ChunkUploadStatusResponse;
+import dev.nexonm.distfs.metadata.dto.response.HostResponse;
+import dev.nexonm.distfs.metadata.entity.StorageNode;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Storage node stub on a local port that speaks the node protocols used by the metadata server: single, batch and
+ * chain uploads and single and batch deletes. It keeps the ids of the stored chunks in memory and records every
+ * request path. A node can be told to reject the batch or chain endpoints like an old node, to fail every request,
+ * or to refuse single chunks of a batch.
+ * <p>
+ * Nodes started through the same {@link Cluster} forward chain uploads to each other: a node stores the chunk and
+ * hands it to the next downstream node, the acknowledgements travel back and a failing node ends the chain.
+ */
+public class StubStorageNode implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern FORM_FIELD =
+            Pattern.compile("name=\"([^\"]+)\"[^\\r\\n]*\\r\\n(?:[^\\r\\n]+\\r\\n)*\\r\\n(.*?)\\r\\n--", Pattern.DOTALL);
+    private static final Pattern CHUNK_ID_HEADER = Pattern.compile("X-Chunk-Id: ([0-9a-f-]{36})");
+
+    private final MockWebServer server = new MockWebServer();
+    private final Cluster cluster;
+    private final Set<String> storedChunks = ConcurrentHashMap.newKeySet();
+    private final Set<String> rejectedChunks = ConcurrentHashMap.newKeySet();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final UUID id = UUID.randomUUID();
+
+    private volatile int unsupportedStatus;
+    private volatile boolean failing;
+
+    /**
+     * Nodes that know each other for chain forwarding, keyed by port.
+     */
+    public static class Cluster {
+        private final Map<Integer, StubStorageNode> nodes = new ConcurrentHashMap<>();
+
+        public StubStorageNode start() {
+            StubStorageNode node = new StubStorageNode(this);
+            nodes.put(node.port(), node);
+            return node;
+        }
+    }
+
+    public static StubStorageNode start() {
+        return new Cluster().start();
+    }
+
+    private StubStorageNode(Cluster cluster) {
+        this.cluster = cluster;
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return handle(request);
+            }
+        });
+        try {
+            server.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Answers the batch and chain endpoints with the status, e.g. 404, as a node without them would.
+     */
+    public StubStorageNode rejectBatchAndChain(int status) {
+        this.unsupportedStatus = status;
+        return this;
+    }
+
+    /**
+     * Answers every request with 500 while set.
+     */
+    public StubStorageNode failing(boolean failing) {
+        this.failing = failing;
+        return this;
+    }
+
+    /**
+     * Reports the chunk as not stored in batch upload answers.
+     */
+    public StubStorageNode rejectChunk(UUID chunkId) {
+        rejectedChunks.add(chunkId.toString());
+        return this;
+    }
+
+    public StubStorageNode store(UUID chunkId) {
+        storedChunks.add(chunkId.toString());
+        return this;
+    }
+
+    public boolean holds(UUID chunkId) {
+        return storedChunks.contains(chunkId.toString());
+    }
+
+    public StorageNode toStorageNode() {
+        return StorageNode.builder().id(id).hostAddr(host()).port(port()).build();
+    }
+
+    public String host() {
+        return server.getHostName();
+    }
+
+    public int port() {
+        return server.getPort();
+    }
+
+    /**
+     * @return paths of the received requests, e.g. {@code DELETE /api/chunk/delete/batch}
+     */
+    public List<String> requests() {
+        return List.copyOf(requests);
+    }
+
+    public long requestCount(String methodAndPath) {
+        return requests.stream().filter(methodAndPath::equals).count();
+    }
+
+    @Override
+    public void close() throws IOException {
+        cluster.nodes.remove(port());
+        server.shutdown();
+    }
+
+    private MockResponse handle(RecordedRequest request) {
+        String path = request.getPath() != null ? request.getPath().split("\\?")[0] : "";
+        requests.add(request.getMethod() + " " + path);
+        if (failing) {
+            return new MockResponse().setResponseCode(500);
+        }
+        String body = request.getBody().readUtf8();
+        try {
+            return switch (request.getMethod() + " " + path) {
+                case "POST /api/chunk/upload" -> upload(body);
+                case "POST /api/chunk/upload/batch" -> unsupportedStatus != 0
+                        ? new MockResponse().setResponseCode(unsupportedStatus) : uploadBatch(body);
+                case "POST /api/chunk/upload/chain" -> unsupportedStatus != 0
+                        ? new MockResponse().setResponseCode(unsupportedStatus) : uploadChain(body);
+                case "DELETE /api/chunk/delete" -> delete(body);
+                case "DELETE /api/chunk/delete/batch" -> unsupportedStatus != 0
+                        ? new MockResponse().setResponseCode(unsupportedStatus) : deleteBatch(body);
+                default -> new MockResponse().setResponseCode(404);
+            };
+        } catch (IOException e) {
+            return new MockResponse().setResponseCode(400);
+        }
+    }
+
+    private MockResponse upload(String body) {
+        storedChunks.add(formFields(body).get("chunkId"));
+        return new MockResponse().setBody("stored");
+    }
+
+    private MockResponse uploadBatch(String body) throws IOException {
+        List<ChunkUploadStatusResponse> results = new ArrayList<>();
+        Matcher matcher = CHUNK_ID_HEADER.matcher(body);
+        while (matcher.find()) {
+            String chunkId = matcher.group(1);
+            boolean stored = !rejectedChunks.contains(chunkId);
+            if (stored) {
+                storedChunks.add(chunkId);
+            }
+            results.add(new ChunkUploadStatusResponse(chunkId, stored));
+        }
+        return json(new ChunkBatchUploadResponse(results));
+    }
+
+    private MockResponse uploadChain(String body) throws IOException {
+        Map<String, String> fields = formFields(body);
+        List<HostResponse> downstream = MAPPER.readValue(fields.get("downstream"), new TypeReference<>() {
+        });
+        return json(new ChunkChainUploadResponse(storeAndForward(fields.get("chunkId"), downstream)));
+    }
+
+    /**
+     * Stores the chunk and forwards it down the chain.
+     * @return hosts of this node and the downstream nodes that stored the chunk
+     */
+    private List<HostResponse> storeAndForward(String chunkId, List<HostResponse> downstream) {
+        requests.add("FORWARD " + chunkId);
+        List<HostResponse> storedOn = new ArrayList<>();
+        storedChunks.add(chunkId);
+        storedOn.add(new HostResponse(host(), port()));
+        if (!downstream.isEmpty()) {
+            StubStorageNode next = cluster.nodes.get(downstream.getFirst().getPort());
+            if (next != null && !next.failing) {
+                storedOn.addAll(next.storeAndForward(chunkId, downstream.subList(1, downstream.size())));
+            }
+        }
+        return storedOn;
+    }
+
+    private MockResponse delete(String body) throws IOException {
+        ChunkDeleteRequest request = MAPPER.readValue(body, ChunkDeleteRequest.class);
+        return storedChunks.remove(request.getChunkUUID())
+                ? new MockResponse().setBody("deleted") : new MockResponse().setResponseCode(404);
+    }
+
+    private MockResponse deleteBatch(String body) throws IOException {
+        ChunkBatchDeleteRequest request = MAPPER.readValue(body, ChunkBatchDeleteRequest.class);
+        List<ChunkDeleteStatusResponse> results = request.getChunks().stream()
+                .map(chunk -> {
+                    storedChunks.remove(chunk.getChunkUUID());
+                    return new ChunkDeleteStatusResponse(chunk.getChunkUUID(), true);
+                })
+                .toList();
+        return json(new ChunkBatchDeleteResponse(results));
+    }
+
+    private static Map<String, String> formFields(String body) {
+        Map<String, String> fields = new ConcurrentHashMap<>();
+        Matcher matcher = FORM_FIELD.matcher(body);
+        while (matcher.find()) {
+            fields.putIfAbsent(matcher.group(1), matcher.group(2));
+        }
+        return fields;
+    }
+
+    private static MockResponse json(Object body) throws IOException {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(MAPPER.writeValueAsString(body));
+    }
+}